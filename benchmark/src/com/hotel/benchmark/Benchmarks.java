@@ -0,0 +1,193 @@
+package com.hotel.benchmark;
+
+import com.hotel.Config;
+import com.hotel.core.Criteria;
+import com.hotel.core.FileManager;
+import com.hotel.entities.*;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Reference benchmarks for persistence, queries and billing.
+ * Each dataset size is generated into its own directory and measured in a separate JVM,
+ * since entities are loaded once per JVM from the working directory.
+ * Reports throughput, latency percentiles and allocated bytes per operation.
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Benchmarks {
+    private static final String RUN = "--run";
+    private static final String[] DEFAULT_SIZES = {"1000:10000", "10000:100000"};
+
+    private static int warmup = 5;
+    private static int iterations = 20;
+    private static Random random = new Random(42);
+
+    /**
+     * Usage: Benchmarks [rooms:reservations ...]
+     * e.g. Benchmarks 1000:10000 10000:100000 100000:1000000
+     * @param args dataset sizes
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(RUN)) {
+            run(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+
+        String[] sizes = args.length == 0 ? DEFAULT_SIZES : args;
+        for (String size : sizes) {
+            String[] arr = size.split(":");
+            int rooms = Integer.parseInt(arr[0]);
+            int reservations = Integer.parseInt(arr[1]);
+
+            File dir = Files.createTempDirectory("hotel-bench").toFile();
+            DataGenerator generator = new DataGenerator(42, new Date());
+            generator.generate(rooms, reservations);
+            generator.write(dir);
+
+            // Fork a JVM in the dataset directory
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            ProcessBuilder pb = new ProcessBuilder(java, "-cp", getClassPath(),
+                    Benchmarks.class.getName(), RUN, arr[0], arr[1]);
+            pb.directory(dir);
+            pb.inheritIO();
+            int exit = pb.start().waitFor();
+            if (exit != 0)
+                System.out.printf("Benchmark of %s failed with exit code %d\n", size, exit);
+        }
+    }
+
+    /**
+     * Class path of this JVM with every entry made absolute, as the forked JVM runs in another directory
+     * @return class path
+     */
+    private static String getClassPath() {
+        StringJoiner results = new StringJoiner(File.pathSeparator);
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+            results.add(new File(entry).getAbsolutePath());
+        return results.toString();
+    }
+
+    /**
+     * Run all benchmarks against the files in the working directory
+     * @param rooms number of rooms generated
+     * @param reservations number of reservations generated
+     */
+    private static void run(int rooms, int reservations) {
+        System.out.printf("%nDataset: %d rooms, %d reservations%n", rooms, reservations);
+        System.out.printf("%-40s %12s %10s %10s %10s %10s %14s%n", "Benchmark", "ops/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "bytes/op");
+
+        long start = System.nanoTime();
+        Room[] roomList = new Room().findAll();
+        System.out.printf("%-40s %.1f ms%n", "Entity.loadEntities (cold start)", (System.nanoTime() - start) / 1e6);
+
+        Reservation[] rsvList = new Reservation().findAll();
+        Guest[] guestList = new Guest().findAll();
+        Reservation[] checkedIn = new Reservation().findAll("reservationStatus", Reservation.ReservationStatus.CHECKED_IN.toString());
+        ArrayList<Room> roomArrayList = new ArrayList<>(Arrays.asList(roomList));
+
+        bench("FileManager.load room", () -> new FileManager(Config.files.get(Room.class)).load(new Room()));
+        bench("FileManager.load reservation", () -> new FileManager(Config.files.get(Reservation.class)).load(new Reservation()));
+        bench("FileManager.write room", () -> new FileManager("bench-" + Config.files.get(Room.class)).write(roomArrayList));
+
+        bench("Entity.findAll roomType+status", () -> new Room().findAll("roomType", "DELUXE", "status", "VACANT"));
+        Criteria roomCriteria = Criteria.is("bedType", "DOUBLE_BED").and(Criteria.in("facing", "SEA_VIEW", "CITY_VIEW"))
+                .and(Criteria.is("wifiEnabled", "true")).and(Criteria.is("smokingAllowed", "true").not());
+        bench("Entity.findAll room Criteria", () -> new Room().findAll(roomCriteria));
+        bench("Entity.find reservationCode", () -> new Reservation().find("reservationCode", rsvList[random.nextInt(rsvList.length)].getReservationCode()));
+        bench("Entity.find reservationStatus first", () -> new Reservation().find("reservationStatus", "CONFIRMED"));
+        bench("Entity.findAll status+guestId", () -> new Reservation().findAll("reservationStatus", "CHECKED_OUT", "guestId", guestList[random.nextInt(guestList.length)].getId()));
+        bench("Entity.find roomId+reservationStatus", () -> new Reservation().find("roomId", roomList[random.nextInt(roomList.length)].getRoomId(), "reservationStatus", "CHECKED_IN"));
+        bench("Entity.findAll guest name partial", () -> new Guest().findAll("name", "tan", false));
+        bench("Entity.findAll guest id partial", () -> new Guest().findAll("id", guestList[random.nextInt(guestList.length)].getId().substring(2, 7), false));
+
+        bench("Entity.save room", () -> saveRooms(roomList, 1));
+        bench("Entity.save room x16 threads", () -> saveRooms(roomList, 16));
+
+        if (checkedIn.length > 0)
+            bench("Payment.getTotal", () -> new Payment(checkedIn[random.nextInt(checkedIn.length)]).getTotal());
+        bench("Report.genRoomTypeOccupancy", () -> new Report().genRoomTypeOccupancy(Room.RoomStatus.VACANT));
+
+        printGc();
+    }
+
+    /**
+     * Save a different Room from each of a number of threads at the same time
+     * @param roomList Rooms to pick from
+     * @param threads number of threads
+     */
+    private static void saveRooms(Room[] roomList, int threads) {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            Room r = roomList[random.nextInt(roomList.length)];
+            workers[i] = new Thread(() -> {
+                r.setRoomRate(r.getRoomRate() + 1);
+                r.save();
+            });
+            workers[i].start();
+        }
+
+        for (Thread t : workers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Measure an operation after warming up
+     * @param name name of the benchmark
+     * @param op operation to be measured
+     */
+    private static void bench(String name, Runnable op) {
+        for (int i = 0; i < warmup; i++)
+            op.run();
+
+        long[] latencies = new long[iterations];
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long t = System.nanoTime();
+            op.run();
+            latencies[i] = System.nanoTime() - t;
+        }
+        long total = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-40s %12.1f %10.3f %10.3f %10.3f %10.3f %14s%n", name,
+                iterations / (total / 1e9),
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies[latencies.length - 1] / 1e6,
+                allocated < 0 ? "n/a" : Long.toString(allocated / iterations));
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Bytes allocated by the current thread. Only available on HotSpot JVMs
+     * @return allocated bytes, -1 if not supported
+     */
+    private static long allocatedBytes() {
+        try {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        } catch (Throwable e) {
+            return -1;
+        }
+    }
+
+    private static void printGc() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            System.out.printf("GC %-30s %6d collections %8d ms%n", gc.getName(), gc.getCollectionCount(), gc.getCollectionTime());
+    }
+}
@@ -0,0 +1,44 @@
+package com.hotel.benchmark;
+
+import com.hotel.entities.Payment;
+import com.hotel.entities.Report;
+import com.hotel.entities.Reservation;
+import com.hotel.entities.Room;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of bills of checked in Reservations and occupancy reports.
+ * Run in a directory with a generated dataset, see benchmark/README.md
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BillingBenchmark {
+    private Reservation[] checkedIn;
+
+    @Setup
+    public void setup() {
+        checkedIn = new Reservation().findAll("reservationStatus", Reservation.ReservationStatus.CHECKED_IN.toString());
+        if (checkedIn.length == 0)
+            throw new IllegalStateException("The dataset has no checked in Reservations");
+    }
+
+    @Benchmark
+    public double paymentTotal() {
+        return new Payment(checkedIn[ThreadLocalRandom.current().nextInt(checkedIn.length)]).getTotal();
+    }
+
+    @Benchmark
+    public HashMap<?, ?> roomTypeOccupancy() {
+        return new Report().genRoomTypeOccupancy(Room.RoomStatus.VACANT);
+    }
+}
@@ -0,0 +1,318 @@
+package com.hotel.benchmark;
+
+import com.hotel.Config;
+import com.hotel.core.FileManager;
+import com.hotel.entities.*;
+
+import java.io.File;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Generates a synthetic hotel dataset for load and scale testing.
+ * Files are written through FileManager in the format of each Entity's toHashMap().
+ * The same seed and today produce the same dataset.
+ * Days are counted and dates written in local time, the way the application reads them, whatever the time zone.
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class DataGenerator {
+    // Share of rooms booked per month, January first
+    private static final double[] SEASON = {0.55, 0.50, 0.60, 0.65, 0.60, 0.80, 0.85, 0.75, 0.60, 0.60, 0.70, 0.90};
+    private static final int FUTURE_DAYS = 90;
+
+    private static final String[] FIRST_NAMES = {"Wei Ming", "Siti", "Raj", "Mei Ling", "John", "Aisha", "Kumar", "Hui Min", "David", "Nur", "Jia Hao", "Priya", "Michael", "Farah", "Jun Jie", "Emily"};
+    private static final String[] LAST_NAMES = {"Tan", "Lim", "Lee", "Ng", "Wong", "Goh", "Chua", "Ong", "Kumar", "Abdullah", "Smith", "Rahman", "Teo", "Koh", "Nair", "Brown"};
+    private static final String[][] COUNTRIES = {{"Singapore", "Singaporean"}, {"Malaysia", "Malaysian"}, {"Indonesia", "Indonesian"}, {"China", "Chinese"}, {"India", "Indian"}, {"Australia", "Australian"}, {"United States", "American"}, {"Japan", "Japanese"}};
+    private static final String[][] MENU = {
+            {"Breakfast Set", "The best way to kick start your day", "2x slices of bread with Kaya toasted fresh and a cup of freshly brewed coffee", "4.5"},
+            {"Lunch Set", "Western Food", "Lamb Chop seasoned with BBQ Sauce", "10.5"},
+            {"Dinner Set", "Seafood Delight", "Platter of seafood of your choice.", "15.5"},
+            {"Soup of the Day", "Mushroom or Chowder soup", "Cooked in a pot", "3.5"},
+            {"Salad", "Make your own Salad", "State your own ingredients", "7.0"},
+            {"Laksa", "Spicy coconut noodle soup", "Rice noodles in laksa broth with prawns and fish cake", "9.0"},
+            {"Chicken Rice", "Hainanese chicken rice", "Poached chicken with fragrant rice and chilli", "8.0"},
+            {"Club Sandwich", "Triple decker sandwich", "Toasted bread with chicken, bacon, egg and lettuce", "12.0"},
+            {"Fruit Platter", "Seasonal fruits", "Slice fruits of the day", "6.5"},
+            {"Coffee", "Freshly brewed coffee", "Brew a pot of coffee", "3.0"},
+    };
+
+    private Random random;
+    private LocalDateTime today;
+    private DateTimeFormatter rsvFormat = DateTimeFormatter.ofPattern(Reservation.dateFormat);
+    private DateTimeFormatter rsFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd-H-m");
+    private DateTimeFormatter codeFormat = DateTimeFormatter.ofPattern("yyyyMMdd-Hm");
+
+    private ArrayList<LinkedHashMap<String, String>> rooms = new ArrayList<>();
+    private ArrayList<LinkedHashMap<String, String>> guests = new ArrayList<>();
+    private ArrayList<LinkedHashMap<String, String>> reservations = new ArrayList<>();
+    private ArrayList<LinkedHashMap<String, String>> menuItems = new ArrayList<>();
+    private ArrayList<LinkedHashMap<String, String>> roomServices = new ArrayList<>();
+    private ArrayList<LinkedHashMap<String, String>> orderMenuItems = new ArrayList<>();
+
+    /**
+     * Constructor of DataGenerator
+     * @param seed seed of the random generator
+     * @param today Date the dataset ends on, in the local time zone. Stays before are history, stays after are future reservations
+     */
+    public DataGenerator(long seed, Date today) {
+        this.random = new Random(seed);
+        this.today = today.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    /**
+     * Usage: DataGenerator [--dir data] [--rooms 48] [--reservations 1000] [--seed 42] [--today yyyy-MM-dd]
+     * @param args options
+     */
+    public static void main(String[] args) throws ParseException {
+        HashMap<String, String> options = new HashMap<>();
+        options.put("--dir", ".");
+        options.put("--rooms", "48");
+        options.put("--reservations", "1000");
+        options.put("--seed", "42");
+        options.put("--today", new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+        for (int i = 0; i + 1 < args.length; i += 2)
+            options.put(args[i], args[i + 1]);
+
+        File dir = new File(options.get("--dir"));
+        dir.mkdirs();
+
+        long start = System.currentTimeMillis();
+        DataGenerator generator = new DataGenerator(Long.parseLong(options.get("--seed")), new SimpleDateFormat("yyyy-MM-dd").parse(options.get("--today")));
+        generator.generate(Integer.parseInt(options.get("--rooms")), Integer.parseInt(options.get("--reservations")));
+        generator.write(dir);
+
+        System.out.printf("Generated %d rooms, %d guests, %d reservations, %d room service orders in %s (%d ms)\n",
+                generator.rooms.size(), generator.guests.size(), generator.reservations.size(),
+                generator.roomServices.size(), dir.getAbsolutePath(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Generate a dataset in memory
+     * @param roomCount number of rooms
+     * @param reservationCount number of reservations
+     */
+    public void generate(int roomCount, int reservationCount) {
+        generateRooms(roomCount);
+        generateGuests(Math.max(1, reservationCount * 3 / 5));
+        generateMenuItems();
+        generateReservations(reservationCount);
+    }
+
+    /**
+     * Write the dataset to the files defined in Config.java
+     * @param dir directory to write to
+     * @return Success of the function
+     */
+    public boolean write(File dir) {
+        return write(dir, Room.class, rooms)
+                && write(dir, Guest.class, guests)
+                && write(dir, Reservation.class, reservations)
+                && write(dir, MenuItem.class, menuItems)
+                && write(dir, RoomService.class, roomServices)
+                && write(dir, OrderMenuItem.class, orderMenuItems);
+    }
+
+    private boolean write(File dir, Class<?> c, ArrayList<LinkedHashMap<String, String>> data) {
+        FileManager fm = new FileManager(new File(dir, Config.files.get(c)).getPath());
+        return fm.writeRecords(new ArrayList<HashMap<String, String>>(data));
+    }
+
+    /**
+     * Rooms are laid out floor by floor from floor 2. Room Types follow the floors:
+     * a third Single, a third Standard, a sixth Deluxe and a sixth VIP.
+     */
+    private void generateRooms(int count) {
+        int perFloor = Math.min(99, Math.max(8, (int) Math.ceil(count / 98.0)));
+        int floors = (int) Math.ceil((double) count / perFloor);
+
+        for (int i = 0; i < count; i++) {
+            int floor = i / perFloor + 2;
+            int number = i % perFloor + 1;
+            double band = (double) (floor - 2) / floors;
+
+            Room.RoomType type;
+            String rate, weekendRate;
+            Room.BedType bed;
+            if (band < 1 / 3.0) {
+                type = Room.RoomType.SINGLE; rate = "150.0"; weekendRate = "180.0"; bed = Room.BedType.SINGLE_BED;
+            } else if (band < 2 / 3.0) {
+                type = Room.RoomType.STANDARD; rate = "250.0"; weekendRate = "280.0"; bed = Room.BedType.DOUBLE_BED;
+            } else if (band < 5 / 6.0) {
+                type = Room.RoomType.DELUXE; rate = "400.0"; weekendRate = "430.0"; bed = Room.BedType.DOUBLE_BED;
+            } else {
+                type = Room.RoomType.VIP; rate = "700.0"; weekendRate = "750.0"; bed = Room.BedType.MASTER_BED;
+            }
+
+            LinkedHashMap<String, String> room = new LinkedHashMap<>();
+            room.put("roomId", String.format("%02d%02d", floor, number));
+            room.put("roomType", type.toString());
+            room.put("roomRate", rate);
+            room.put("roomWeekendRate", weekendRate);
+            room.put("roomFloor", Integer.toString(floor));
+            room.put("roomNumber", Integer.toString(number));
+            room.put("wifiEnabled", Boolean.toString(random.nextDouble() < 0.9));
+            room.put("smokingAllowed", Boolean.toString(random.nextDouble() < 0.2));
+            room.put("bedType", bed.toString());
+            room.put("facing", Room.FacingType.values()[random.nextInt(Room.FacingType.values().length)].toString());
+            room.put("status", random.nextDouble() < 0.01 ? Room.RoomStatus.UNDER_MAINTENANCE.toString() : Room.RoomStatus.VACANT.toString());
+            rooms.add(room);
+        }
+    }
+
+    private void generateGuests(int count) {
+        for (int i = 0; i < count; i++) {
+            String[] country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+            LinkedHashMap<String, String> guest = new LinkedHashMap<>();
+            guest.put("id", String.format("%c%07d", (char) ('A' + i / 10000000 % 26), i % 10000000));
+            guest.put("idType", random.nextBoolean() ? Guest.IdType.PASSPORT.toString() : Guest.IdType.DRIVING_LICENSE.toString());
+            guest.put("name", FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            guest.put("address", String.format("%d %s Road #%02d-%02d", random.nextInt(999) + 1, LAST_NAMES[random.nextInt(LAST_NAMES.length)], random.nextInt(30) + 1, random.nextInt(99) + 1));
+            guest.put("country", country[0]);
+            guest.put("gender", random.nextBoolean() ? "M" : "F");
+            guest.put("nationality", country[1]);
+            guest.put("contact", String.format("%d%07d", 8 + random.nextInt(2), random.nextInt(10000000)));
+            guest.put("creditCard", String.format("4%07d%08d", random.nextInt(10000000), random.nextInt(100000000)));
+            guests.add(guest);
+        }
+    }
+
+    private void generateMenuItems() {
+        for (String[] item : MENU) {
+            LinkedHashMap<String, String> menuItem = new LinkedHashMap<>();
+            menuItem.put("name", item[0]);
+            menuItem.put("description", item[1]);
+            menuItem.put("prepSteps", item[2]);
+            menuItem.put("price", item[3]);
+            menuItems.add(menuItem);
+        }
+    }
+
+    /**
+     * Each room has its own timeline of stays separated by gaps. Gaps are longer in quiet months.
+     * Timelines are filled backwards from the end of the future bookings until enough reservations are made,
+     * so every room has a current stay history regardless of the number of reservations.
+     */
+    private void generateReservations(int count) {
+        if (rooms.size() == 0)
+            return;
+
+        // Average stay of 2.5 nights at an average occupancy of ~0.67. A tenth of the days are future bookings
+        int totalDays = (int) Math.ceil((double) count / rooms.size() * 2.5 / 0.67);
+        long todayDay = today.toLocalDate().toEpochDay();
+        long[] previous = new long[rooms.size()];
+        Arrays.fill(previous, todayDay + Math.min(FUTURE_DAYS, Math.max(1, totalDays / 10)));
+
+        HashSet<String> codes = new HashSet<>();
+        HashSet<String> rsIds = new HashSet<>();
+        while (reservations.size() < count) {
+            for (int i = 0; i < rooms.size() && reservations.size() < count; i++) {
+                long checkOut = previous[i] - gap(previous[i]);
+                int nights = 1 + (int) Math.min(13, -Math.log(1 - random.nextDouble()) * 1.5);
+                previous[i] = checkOut - nights;
+                addReservation(rooms.get(i), previous[i], nights, todayDay, codes, rsIds);
+            }
+        }
+
+        // Order reservations by check in like they would have been made
+        reservations.sort(Comparator.comparing((LinkedHashMap<String, String> rsv) -> rsv.get("checkInDate")));
+    }
+
+    /**
+     * Number of empty nights between two stays
+     * @param day current day of the room
+     * @return nights
+     */
+    private long gap(long day) {
+        double occupancy = SEASON[LocalDate.ofEpochDay(day).getMonthValue() - 1];
+
+        // Geometric gap so that nights booked / total nights is roughly the occupancy
+        double meanGap = 2.5 * (1 - occupancy) / occupancy;
+        return (long) (-Math.log(1 - random.nextDouble()) * meanGap);
+    }
+
+    private void addReservation(LinkedHashMap<String, String> room, long checkInDay, int nights, long todayDay, HashSet<String> codes, HashSet<String> rsIds) {
+        // Repeat guests are more likely to be picked
+        LinkedHashMap<String, String> guest = guests.get((int) (guests.size() * Math.pow(random.nextDouble(), 2)));
+        LocalDateTime checkIn = LocalDate.ofEpochDay(checkInDay).atTime(12 + random.nextInt(8), 0);
+        LocalDateTime checkOut = LocalDate.ofEpochDay(checkInDay + nights).atTime(8 + random.nextInt(4), 0);
+
+        Reservation.ReservationStatus status;
+        if (checkInDay >= todayDay)
+            status = Reservation.ReservationStatus.CONFIRMED;
+        else if (checkInDay + nights > todayDay)
+            status = random.nextDouble() < 0.97 ? Reservation.ReservationStatus.CHECKED_IN : Reservation.ReservationStatus.EXPIRED;
+        else
+            status = random.nextDouble() < 0.97 ? Reservation.ReservationStatus.CHECKED_OUT : Reservation.ReservationStatus.EXPIRED;
+
+        // Booked up to 60 days before check in. Code is unique per booking time and guest
+        String code;
+        LocalDateTime booked = checkIn.minusMinutes(random.nextInt(60 * 24 * 60));
+        do {
+            code = String.format("%s-%s", codeFormat.format(booked), guest.get("id"));
+            booked = booked.plusMinutes(1);
+        } while (!codes.add(code));
+
+        LinkedHashMap<String, String> rsv = new LinkedHashMap<>();
+        rsv.put("reservationCode", code);
+        rsv.put("reservationStatus", status.toString());
+        rsv.put("numberOfChildren", Integer.toString(random.nextDouble() < 0.3 ? 1 + random.nextInt(3) : 0));
+        rsv.put("numberOfAdult", Integer.toString(1 + random.nextInt(3)));
+        rsv.put("checkInDate", rsvFormat.format(checkIn));
+        rsv.put("checkOutDate", rsvFormat.format(checkOut));
+        rsv.put("guestId", guest.get("id"));
+        rsv.put("roomId", room.get("roomId"));
+        reservations.add(rsv);
+
+        if (status == Reservation.ReservationStatus.CHECKED_IN)
+            room.put("status", Room.RoomStatus.OCCUPIED.toString());
+        else if (checkInDay == todayDay && room.get("status").equals(Room.RoomStatus.VACANT.toString()))
+            room.put("status", Room.RoomStatus.RESERVED.toString());
+
+        if (status == Reservation.ReservationStatus.CHECKED_IN || status == Reservation.ReservationStatus.CHECKED_OUT)
+            addRoomServices(rsv, checkIn, checkOut.isBefore(today) ? checkOut : today, status == Reservation.ReservationStatus.CHECKED_IN, rsIds);
+    }
+
+    private void addRoomServices(LinkedHashMap<String, String> rsv, LocalDateTime checkIn, LocalDateTime until, boolean current, HashSet<String> rsIds) {
+        while (random.nextDouble() < 0.3) {
+            long span = Math.max(1, Duration.between(checkIn, until).toMillis());
+            LocalDateTime created = checkIn.plus(Duration.ofMillis((long) (random.nextDouble() * span)));
+            String id = String.format("%s-%s", rsFormat.format(created), rsv.get("roomId"));
+            if (!rsIds.add(id))
+                continue;
+
+            RoomService.OrderStatus status = RoomService.OrderStatus.DELIVERED;
+            if (current)
+                status = RoomService.OrderStatus.values()[random.nextInt(RoomService.OrderStatus.values().length)];
+
+            LinkedHashMap<String, String> rs = new LinkedHashMap<>();
+            rs.put("id", id);
+            rs.put("remarks", random.nextDouble() < 0.2 ? "Less spicy" : "");
+            rs.put("status", status.toString());
+            rs.put("created", rsFormat.format(created));
+            rs.put("reservationId", rsv.get("reservationCode"));
+            roomServices.add(rs);
+
+            HashSet<String> ordered = new HashSet<>();
+            int items = 1 + random.nextInt(3);
+            for (int i = 0; i < items; i++) {
+                String[] item = MENU[random.nextInt(MENU.length)];
+                if (!ordered.add(item[0]))
+                    continue;
+
+                LinkedHashMap<String, String> omi = new LinkedHashMap<>();
+                omi.put("name", item[0]);
+                omi.put("price", item[3]);
+                omi.put("rsId", id);
+                omi.put("qty", Integer.toString(1 + random.nextInt(3)));
+                orderMenuItems.add(omi);
+            }
+        }
+    }
+}
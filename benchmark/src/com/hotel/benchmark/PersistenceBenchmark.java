@@ -0,0 +1,71 @@
+package com.hotel.benchmark;
+
+import com.hotel.Config;
+import com.hotel.core.FileManager;
+import com.hotel.entities.Reservation;
+import com.hotel.entities.Room;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of reading, rewriting and saving entity files.
+ * Run in a directory with a generated dataset, see benchmark/README.md
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    private Room[] rooms;
+    private ArrayList<Room> roomList;
+
+    @Setup
+    public void setup() {
+        rooms = new Room().findAll();
+        roomList = new ArrayList<>(Arrays.asList(rooms));
+    }
+
+    @Benchmark
+    public ArrayList<Room> loadRooms() {
+        return new FileManager(Config.files.get(Room.class)).load(new Room());
+    }
+
+    @Benchmark
+    public ArrayList<Reservation> loadReservations() {
+        return new FileManager(Config.files.get(Reservation.class)).load(new Reservation());
+    }
+
+    @Benchmark
+    public boolean writeRooms() {
+        return new FileManager("bench-" + Config.files.get(Room.class)).write(roomList);
+    }
+
+    @Benchmark
+    public boolean saveRoom() {
+        return saveRandomRoom();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean saveRoom16Threads() {
+        return saveRandomRoom();
+    }
+
+    /**
+     * Raise the rate of a random Room. Concurrent saves of the same Room fail with a conflict
+     * @return true if saved
+     */
+    private boolean saveRandomRoom() {
+        Room r = rooms[ThreadLocalRandom.current().nextInt(rooms.length)].checkout();
+        r.setRoomRate(r.getRoomRate() + 1);
+        return r.save();
+    }
+}
@@ -0,0 +1,76 @@
+package com.hotel.benchmark;
+
+import com.hotel.core.Criteria;
+import com.hotel.entities.Guest;
+import com.hotel.entities.Reservation;
+import com.hotel.entities.Room;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of searches through the indexes of the entity stores.
+ * Run in a directory with a generated dataset, see benchmark/README.md
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    private Room[] rooms;
+    private Reservation[] reservations;
+    private Guest[] guests;
+    private Criteria roomCriteria = Criteria.is("bedType", "DOUBLE_BED").and(Criteria.in("facing", "SEA_VIEW", "CITY_VIEW"))
+            .and(Criteria.is("wifiEnabled", "true")).and(Criteria.is("smokingAllowed", "true").not());
+
+    @Setup
+    public void setup() {
+        rooms = new Room().findAll();
+        reservations = new Reservation().findAll();
+        guests = new Guest().findAll();
+    }
+
+    @Benchmark
+    public Room[] findRoomsByTypeAndStatus() {
+        return new Room().findAll("roomType", "DELUXE", "status", "VACANT");
+    }
+
+    @Benchmark
+    public Room[] findRoomsByCriteria() {
+        return new Room().findAll(roomCriteria);
+    }
+
+    @Benchmark
+    public Reservation findReservationByCode() {
+        return new Reservation().find("reservationCode", random(reservations).getReservationCode());
+    }
+
+    @Benchmark
+    public Reservation[] findReservationsByStatusAndGuest() {
+        return new Reservation().findAll("reservationStatus", "CHECKED_OUT", "guestId", random(guests).getId());
+    }
+
+    @Benchmark
+    public Reservation findReservationByRoomAndStatus() {
+        return new Reservation().find("roomId", random(rooms).getRoomId(), "reservationStatus", "CHECKED_IN");
+    }
+
+    @Benchmark
+    public Guest[] findGuestsByPartialName() {
+        return new Guest().findAll("name", "tan", false);
+    }
+
+    @Benchmark
+    public Guest[] findGuestsByPartialId() {
+        return new Guest().findAll("id", random(guests).getId().substring(2, 7), false);
+    }
+
+    private static <T> T random(T[] list) {
+        return list[ThreadLocalRandom.current().nextInt(list.length)];
+    }
+}
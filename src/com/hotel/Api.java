@@ -0,0 +1,195 @@
+package com.hotel;
+
+import com.hotel.controls.ApiControl;
+import com.hotel.core.Entity;
+import com.hotel.core.Json;
+import com.hotel.entities.ExpiryScheduler;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the operations of ApiControl as JSON over HTTP on the local machine
+ * Usage: Api [port], e.g. curl localhost:5080/reports/room-status
+ *
+ * POST /guests                              create Guest
+ * GET  /guests/{id}                         find Guest
+ * GET  /reservations?reservationStatus=     list Reservations, also by guestId and roomId, up to limit
+ * POST /reservations                        create Reservation, walkIn to check in at once
+ * GET  /reservations/{code}                 find Reservation
+ * POST /reservations/{code}/check-in        check in
+ * POST /reservations/{code}/check-out       check out and pay
+ * GET  /rooms/vacant?checkInDate=&checkOutDate=&roomType=   also bedType, facing, wifiEnabled, smokingAllowed, roomFloor
+ * POST /rooms/{id}/status                   set Room VACANT or UNDER_MAINTENANCE
+ * POST /room-services                       order Room Service
+ * POST /room-services/{id}/status           mark order PREPARING or DELIVERED
+ * GET  /reports/room-status                 Room Status Report
+ * GET  /reports/occupancy?status=           Room Type Occupancy Report
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Api {
+    private static final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Main Method
+     * @param args port to listen on, Config.apiPort if not given
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Config.apiPort;
+
+        // Load all files in the background while the socket is opened
+        Entity.startLoading();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", Api::handle);
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "api-" + requests.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }));
+
+        Entity.awaitReady();
+        ExpiryScheduler.start();
+        server.start();
+        System.out.printf("Listening on http://%s:%d\n", server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    /**
+     * Answer a request. The connection is read and written by the server, the operation runs on a thread of the executor
+     * @param exchange request and response
+     */
+    private static void handle(HttpExchange exchange) throws IOException {
+        ApiControl.Result result;
+        try {
+            result = route(exchange);
+        } catch (IllegalArgumentException e) {
+            result = ApiControl.error(400, e.getMessage());
+        } catch (Exception | StackOverflowError e) {
+            e.printStackTrace();
+            result = ApiControl.error(500, "Internal error.");
+        }
+
+        byte[] response = Json.write(result.getBody()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(result.getStatus(), response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    /**
+     * Call the operation of the path and method
+     * @param exchange request
+     * @return Result of the operation
+     */
+    private static ApiControl.Result route(HttpExchange exchange) throws IOException {
+        ApiControl ac = new ApiControl();
+        String method = exchange.getRequestMethod();
+        String path[] = exchange.getRequestURI().getRawPath().replaceAll("^/+|/+$", "").split("/+");
+        for (int i = 0; i < path.length; i++)
+            path[i] = decode(path[i]);
+
+        Map<String, String> query = readQuery(exchange.getRequestURI().getRawQuery());
+        boolean get = method.equals("GET");
+        boolean post = method.equals("POST");
+        String route = path.length == 0 ? "" : path[0];
+
+        switch (route) {
+            case "guests":
+                if (post && path.length == 1)
+                    return ac.createGuest(readBody(exchange));
+                if (get && path.length == 2)
+                    return ac.getGuest(path[1]);
+                break;
+            case "reservations":
+                if (get && path.length == 1)
+                    return ac.listReservations(query);
+                if (post && path.length == 1)
+                    return ac.createReservation(readBody(exchange));
+                if (get && path.length == 2)
+                    return ac.getReservation(path[1]);
+                if (post && path.length == 3 && path[2].equals("check-in"))
+                    return ac.checkIn(path[1], readBody(exchange));
+                if (post && path.length == 3 && path[2].equals("check-out"))
+                    return ac.checkOut(path[1], readBody(exchange));
+                break;
+            case "rooms":
+                if (get && path.length == 2 && path[1].equals("vacant"))
+                    return ac.vacantRooms(query);
+                if (post && path.length == 3 && path[2].equals("status"))
+                    return ac.setRoomStatus(path[1], readBody(exchange));
+                break;
+            case "room-services":
+                if (post && path.length == 1)
+                    return ac.createRoomService(readBody(exchange));
+                if (post && path.length == 3 && path[2].equals("status"))
+                    return ac.setRoomServiceStatus(path[1], readBody(exchange));
+                break;
+            case "reports":
+                if (get && path.length == 2 && path[1].equals("room-status"))
+                    return ac.roomStatusReport();
+                if (get && path.length == 2 && path[1].equals("occupancy"))
+                    return ac.occupancyReport(query);
+                break;
+        }
+
+        return ApiControl.error(404, String.format("%s /%s not found.", method, String.join("/", path)));
+    }
+
+    /**
+     * Read the JSON object of a request. An empty body is an empty object
+     * @param exchange request
+     * @return values of the object
+     */
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+                bytes.write(buffer, 0, n);
+        }
+
+        String text = new String(bytes.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (text.isEmpty())
+            return new HashMap<>();
+
+        Map<String, Object> body = Json.asObject(Json.parse(text));
+        if (body == null)
+            throw new IllegalArgumentException("Request body has to be a JSON object.");
+        return body;
+    }
+
+    private static Map<String, String> readQuery(String query) {
+        HashMap<String, String> results = new HashMap<>();
+        if (query == null)
+            return results;
+
+        for (String pair : query.split("&")) {
+            int i = pair.indexOf('=');
+            if (i > 0)
+                results.put(decode(pair.substring(0, i)), decode(pair.substring(i + 1)));
+        }
+        return results;
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return s;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.hotel;
+
+import com.hotel.controls.ApiControl;
+import com.hotel.core.Entity;
+import com.hotel.core.Json;
+import com.hotel.core.Transaction;
+import com.hotel.entities.Room;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Runs a script of commands without the menus
+ * Usage: Batch [script], reads standard input without a script. Every line is a command followed by a JSON object
+ * with the same values as the body of the matching Api request. Blank lines and lines starting with # are skipped.
+ *
+ * guest         {"idType": "PASSPORT", "id": "S1234567A", "name": "...", ...}
+ * reserve       {"guestId": "S1234567A", "numberOfAdult": 2, "numberOfChildren": 0, "checkInDate": "2017-05-01 1400", ...}
+ * check-in      {"reservationCode": "..."}
+ * check-out     {"reservationCode": "..."}
+ * room-status   {"roomId": "0201", "status": "UNDER_MAINTENANCE"}, or "roomFloor" for every Room of a floor
+ * room-service  {"reservationCode": "...", "remarks": "", "items": [{"name": "Breakfast Set", "qty": 2}]}
+ * order-status  {"id": "...", "status": "PREPARING"}
+ *
+ * Up to Config.batchCommands commands are committed in a single transaction. A failed command never undoes the others.
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Batch {
+    // Commands that check other new records when validated, e.g. Availability or unique ids. Never batched
+    private static final List<String> unbatched = Arrays.asList("guest", "reserve");
+
+    private final ApiControl ac = new ApiControl();
+    private final ArrayList<Command> pending = new ArrayList<>();
+    private int total = 0;
+    private int failed = 0;
+
+    /**
+     * Command of a line in the script
+     */
+    private static class Command {
+        private final int line;
+        private final String name;
+        private final Map<String, Object> body;
+
+        private Command(int line, String name, Map<String, Object> body) {
+            this.line = line;
+            this.name = name;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Main Method
+     * @param args path of the script, standard input if not given
+     */
+    public static void main(String[] args) throws IOException {
+        Entity.startLoading();
+        InputStream in = args.length > 0 ? new FileInputStream(args[0]) : System.in;
+
+        Entity.awaitReady();
+        long start = System.currentTimeMillis();
+        Batch batch = new Batch();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            batch.run(reader);
+        }
+
+        System.out.printf("%d commands, %d failed in %d ms\n", batch.total, batch.failed, System.currentTimeMillis() - start);
+        if (batch.failed != 0)
+            System.exit(1);
+    }
+
+    /**
+     * Run every command of a script
+     * @param reader script
+     */
+    private void run(BufferedReader reader) throws IOException {
+        String text;
+        int line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            text = text.trim();
+            if (text.isEmpty() || text.startsWith("#"))
+                continue;
+
+            String parts[] = text.split("\\s+", 2);
+            Map<String, Object> body;
+            try {
+                body = Json.asObject(Json.parse(parts.length > 1 ? parts[1] : "{}"));
+                if (body == null)
+                    throw new IllegalArgumentException("Values have to be a JSON object.");
+            } catch (IllegalArgumentException e) {
+                flush();
+                total++;
+                print(new Command(line, parts[0], null), ApiControl.error(400, e.getMessage()));
+                continue;
+            }
+
+            for (Command command : expand(new Command(line, parts[0], body)))
+                add(command);
+        }
+
+        flush();
+    }
+
+    /**
+     * Commands for every Room of a floor
+     * @param command command of the script
+     * @return commands to be run
+     */
+    private List<Command> expand(Command command) {
+        if (!command.name.equals("room-status") || command.body.get("roomFloor") == null)
+            return Arrays.asList(command);
+
+        ArrayList<Command> results = new ArrayList<>();
+        for (Room r : new Room().findAll("roomFloor", command.body.get("roomFloor").toString())) {
+            LinkedHashMap<String, Object> body = new LinkedHashMap<>(command.body);
+            body.remove("roomFloor");
+            body.put("roomId", r.getRoomId());
+            results.add(new Command(command.line, command.name, body));
+        }
+        return results;
+    }
+
+    private void add(Command command) {
+        total++;
+        if (unbatched.contains(command.name)) {
+            flush();
+            runAlone(command);
+            return;
+        }
+
+        pending.add(command);
+        if (pending.size() >= Config.batchCommands)
+            flush();
+    }
+
+    /**
+     * Commit the pending commands in one transaction
+     */
+    private void flush() {
+        commit(pending);
+        pending.clear();
+    }
+
+    /**
+     * Commit commands in one transaction. If a command fails, the commands before it are committed again,
+     * the failed command is run on its own and the commands after it are committed in the next transaction
+     * @param commands commands to be run
+     */
+    private void commit(List<Command> commands) {
+        if (commands.size() == 0)
+            return;
+
+        ArrayList<ApiControl.Result> results = new ArrayList<>();
+        boolean success = Transaction.run(() -> {
+            for (Command command : commands) {
+                ApiControl.Result result = execute(command);
+                results.add(result);
+                if (!isSuccess(result))
+                    return false;
+            }
+            return true;
+        });
+
+        if (success) {
+            for (int i = 0; i < commands.size(); i++)
+                print(commands.get(i), results.get(i));
+            return;
+        }
+
+        // Every command succeeded but the commit failed, e.g. another program saved the same record
+        int failed = results.size() - 1;
+        if (isSuccess(results.get(failed))) {
+            for (Command command : commands)
+                runAlone(command);
+            return;
+        }
+
+        commit(commands.subList(0, failed));
+        runAlone(commands.get(failed));
+        commit(commands.subList(failed + 1, commands.size()));
+    }
+
+    private void runAlone(Command command) {
+        ApiControl.Result results[] = new ApiControl.Result[1];
+        Transaction.run(() -> isSuccess(results[0] = execute(command)));
+        print(command, results[0]);
+    }
+
+    /**
+     * Run a command with ApiControl
+     * @param command command of the script
+     * @return Result of the operation
+     */
+    private ApiControl.Result execute(Command command) {
+        Map<String, Object> body = command.body;
+        switch (command.name) {
+            case "guest":
+                return ac.createGuest(body);
+            case "reserve":
+                return ac.createReservation(body);
+            case "check-in":
+                return ac.checkIn(string(body.get("reservationCode")), body);
+            case "check-out":
+                return ac.checkOut(string(body.get("reservationCode")), body);
+            case "room-status":
+                return ac.setRoomStatus(string(body.get("roomId")), body);
+            case "room-service":
+                return ac.createRoomService(body);
+            case "order-status":
+                return ac.setRoomServiceStatus(string(body.get("id")), body);
+            default:
+                return ApiControl.error(400, String.format("Unknown command %s.", command.name));
+        }
+    }
+
+    /**
+     * Print failed commands and the codes of new Reservations and orders
+     * @param command command of the script
+     * @param result Result of the operation
+     */
+    private void print(Command command, ApiControl.Result result) {
+        if (!isSuccess(result)) {
+            failed++;
+            StringJoiner errors = new StringJoiner(" ");
+            for (Object error : (List<?>) ((Map<?, ?>) result.getBody()).get("errors"))
+                errors.add(String.valueOf(error));
+            System.out.printf("Line %d %s failed: %s\n", command.line, command.name, errors);
+        } else if (command.name.equals("reserve")) {
+            System.out.printf("Line %d Reservation Code: %s\n", command.line, ((Map<?, ?>) result.getBody()).get("reservationCode"));
+        } else if (command.name.equals("room-service")) {
+            System.out.printf("Line %d Order: %s\n", command.line, ((Map<?, ?>) result.getBody()).get("id"));
+        }
+    }
+
+    private static boolean isSuccess(ApiControl.Result result) {
+        return result.getStatus() / 100 == 2;
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -13,7 +13,7 @@ import java.util.HashMap;
  * @version 1.0
  */
 public class Config {
-    public static final HashMap<Class, String> files = new HashMap(){{
+    public static final HashMap<Class<?>, String> files = new HashMap<Class<?>, String>(){{
         put(Guest.class, "guest.txt");
         put(Room.class, "room.txt");
         put(Reservation.class, "reservation.txt");
@@ -24,5 +24,28 @@ public class Config {
 
     public static final String currency = "S$";
     public static final int expireHours = 1;
+    // Seconds before Reservations are expired again after their batch failed to commit, doubled on every failure up to 64 times
+    public static final int expiryRetrySeconds = 5;
+
+    // Append changes to a journal instead of rewriting the whole file
+    public static final boolean journal = true;
+    // Number of journal records before the file is rewritten in the background
+    public static final int checkpointRecords = 200;
+    // Journal writes arriving within this many milliseconds are written and forced to disk together
+    public static final int groupCommitMillis = 2;
+    // Largest number of journal writes forced to disk together
+    public static final int groupCommitRecords = 64;
+    // Ids of committed Transactions. Journal records of a Transaction only apply once its id is in here
+    public static final String transactionLog = "transaction.log";
+    // Store files in the binary format (name.bin) instead of text. Convert existing files with StorageConverter
+    public static final boolean binary = false;
+    // Port of the terminal server (Server)
+    public static final int serverPort = 5000;
+    // Port of the HTTP API (Api)
+    public static final int apiPort = 5080;
+    // Largest number of commands of a batch script (Batch) committed in one transaction
+    public static final int batchCommands = 100;
+    // Memory map text files and load archived records (Entity.getArchivedValues()) only when a search needs them
+    public static final boolean mappedRead = false;
 
 }
@@ -1,6 +1,8 @@
 package com.hotel;
 
 import com.hotel.controls.MainControl;
+import com.hotel.core.Entity;
+import com.hotel.entities.ExpiryScheduler;
 
 /**
  * Main function to start the program
@@ -13,7 +15,14 @@ public class Main {
      * @param args Arguments
      */
     public static void main(String[] args) {
+        // Load all files in the background while the menus are set up
+        Entity.startLoading();
         MainControl mc = new MainControl();
+
+        Entity.awaitReady();
+        ExpiryScheduler.start();
         mc.process();
+
+        ExpiryScheduler.stop();
     }
 }
@@ -0,0 +1,78 @@
+package com.hotel;
+
+import com.hotel.controls.MainControl;
+import com.hotel.core.Entity;
+import com.hotel.core.Session;
+import com.hotel.entities.ExpiryScheduler;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the application once for many terminals
+ * Each connection on the local socket gets its own session of the main menu on its own thread.
+ * All sessions share the Entities loaded in this process.
+ * Usage: Server [port], then connect a terminal with e.g. nc localhost 5000
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Server {
+    private static final AtomicInteger sessions = new AtomicInteger();
+
+    /**
+     * Main Method
+     * @param args port to listen on, Config.serverPort if not given
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Config.serverPort;
+
+        // Load all files in the background while the socket is opened
+        Entity.startLoading();
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Entity.awaitReady();
+        ExpiryScheduler.start();
+        System.out.printf("Listening on %s:%d\n", server.getInetAddress().getHostAddress(), server.getLocalPort());
+
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "session-" + sessions.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                executor.submit(() -> serve(socket));
+            }
+        } finally {
+            ExpiryScheduler.stop();
+            server.close();
+        }
+    }
+
+    /**
+     * Run the main menu for a terminal until it quits or disconnects
+     * @param socket connection of the terminal
+     */
+    private static void serve(Socket socket) {
+        String name = Thread.currentThread().getName();
+        System.out.printf("%s connected from %s\n", name, socket.getRemoteSocketAddress());
+
+        try (Socket s = socket) {
+            new Session(s.getInputStream(), s.getOutputStream()).run(() -> new MainControl().process());
+        } catch (NoSuchElementException e) {
+            // Terminal disconnected while waiting for input
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        System.out.printf("%s closed\n", name);
+    }
+}
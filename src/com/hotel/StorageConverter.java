@@ -0,0 +1,39 @@
+package com.hotel;
+
+import com.hotel.core.Entity;
+import com.hotel.core.FileManager;
+
+import java.util.Map;
+
+/**
+ * Converts the files of all Entities in the working directory between the text and the binary format
+ * Usage: StorageConverter binary|text
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class StorageConverter {
+    /**
+     * Main Method
+     * @param args binary to convert text files to binary, text to convert binary files to text
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1 || !(args[0].equals("binary") || args[0].equals("text"))) {
+            System.out.println("Usage: StorageConverter binary|text");
+            return;
+        }
+
+        // The files are rewritten and their journals deleted here, so they must not be loaded meanwhile
+        Entity.skipLoading();
+
+        boolean toBinary = args[0].equals("binary");
+        for (Map.Entry<Class<?>, String> o : Config.files.entrySet()) {
+            FileManager source = new FileManager(o.getValue(), !toBinary);
+            FileManager target = new FileManager(o.getValue(), toBinary);
+
+            if (source.convert((Entity) o.getKey().getDeclaredConstructor().newInstance(), target))
+                System.out.printf("Converted %s\n", o.getValue());
+            else
+                System.out.printf("Failed to convert %s\n", o.getValue());
+        }
+    }
+}
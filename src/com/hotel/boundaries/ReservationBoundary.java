@@ -98,7 +98,7 @@ public class ReservationBoundary extends Boundary {
 
     public boolean printPayment(Payment p) {
         Reservation rsv = p.getReservation();
-        RoomService rs = rsv.getRoomService();
+        RoomService rsList[] = rsv.getRoomServices();
         int totalDays = DateManager.getTotalDays(rsv.getCheckInDate(), rsv.getCheckOutDate());
         int weekdays = DateManager.getTotalWeekdays(rsv.getCheckInDate(), rsv.getCheckOutDate());
         SimpleDateFormat sdf = new SimpleDateFormat(Reservation.dateFormat);
@@ -114,11 +114,12 @@ public class ReservationBoundary extends Boundary {
             System.out.println(String.format("Weekends: %d x %s", totalDays - weekdays, toCurrency(p.getReservation().getRoom().getRoomWeekendRate())));
             System.out.println(String.format("Room Total: %s", toCurrency(p.getRoomTotal())));
 
-            if (rs != null) {
+            if (rsList.length != 0) {
                 System.out.println();
                 System.out.println("Room Service");
-                for (OrderMenuItem omi : rs.getMenuItems())
-                    System.out.println(String.format("- %s x %d: %s", omi.getName(), omi.getQty(), toCurrency(omi.getTotalPrice())));
+                for (RoomService rs : rsList)
+                    for (OrderMenuItem omi : rs.getMenuItems())
+                        System.out.println(String.format("- %s x %d: %s", omi.getName(), omi.getQty(), toCurrency(omi.getTotalPrice())));
                 System.out.println(String.format("Room Service Total: %s", toCurrency(p.getRoomServiceTotal())));
             }
 
@@ -139,6 +140,6 @@ public class ReservationBoundary extends Boundary {
     }
 
     public void printRoomsFull() {
-        System.out.println("All our rooms are currently filled.");
+        System.out.println("All our rooms are filled for the selected dates.");
     }
 }
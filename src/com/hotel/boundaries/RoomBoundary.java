@@ -1,6 +1,7 @@
 package com.hotel.boundaries;
 
 import com.hotel.core.Boundary;
+import com.hotel.core.Criteria;
 import com.hotel.entities.Room;
 
 /**
@@ -28,4 +29,47 @@ public class RoomBoundary extends Boundary{
             return null;
         return roomList[input - 1];
     }
+
+    /**
+     * Narrow down the Rooms to choose from by bed type, facing, wifi, smoking and floor
+     * @param criteria Criteria chosen so far
+     * @return criteria with the choices of the user, unchanged if the user takes any Room
+     */
+    public Criteria processCriteria(Criteria criteria) {
+        System.out.println("Press Y to choose bed type, facing, wifi, smoking or floor, N to take any Room");
+        if (!getString().equalsIgnoreCase("Y"))
+            return criteria;
+
+        Room r = new Room();
+        for (String var : new String[] {"bedType", "facing"}) {
+            Enum<?> eList[] = r.getEnumList().get(var);
+            String menu[] = new String[eList.length + 2];
+            menu[0] = r.getAttributeLabel(var);
+            menu[1] = "Any";
+            for (int i = 0; i < eList.length; i++)
+                menu[i + 2] = r.getAttributeLabel(eList[i].toString());
+
+            int input = processMenu(menu, false, false);
+            if (input > 1)
+                criteria = criteria.and(Criteria.is(var, eList[input - 2].toString()));
+        }
+
+        for (String var : new String[] {"wifiEnabled", "smokingAllowed"}) {
+            int input = processMenu(new String[] {r.getAttributeLabel(var), "Any", "Yes", "No"}, false, false);
+            if (input > 1)
+                criteria = criteria.and(Criteria.is(var, Boolean.toString(input == 2)));
+        }
+
+        while (true) {
+            String input = getString(String.format("%s (leave blank for any floor)", r.getAttributeLabel("roomFloor")));
+            if (input.isEmpty())
+                return criteria;
+
+            try {
+                return criteria.and(Criteria.is("roomFloor", Integer.toString(Integer.parseInt(input))));
+            } catch (NumberFormatException nfe) {
+                printInvalidInput();
+            }
+        }
+    }
 }
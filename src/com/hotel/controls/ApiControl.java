@@ -0,0 +1,602 @@
+package com.hotel.controls;
+
+import com.hotel.core.Criteria;
+import com.hotel.core.Entity;
+import com.hotel.core.Json;
+import com.hotel.core.Query;
+import com.hotel.entities.*;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * API Control Object
+ * Business operations of the menus for programs, e.g. channel managers and kiosks. Used by com.hotel.Api.
+ * Every operation returns a Result with the HTTP status and the values to be written as JSON
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class ApiControl {
+
+    /**
+     * Outcome of an operation
+     */
+    public static class Result {
+        private final int status;
+        private final Object body;
+
+        private Result(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public Object getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Create a Guest
+     * @param body attributes of Guest.getEditableList()
+     * @return 201 with the Guest
+     */
+    public Result createGuest(Map<String, Object> body) {
+        Guest g = new Guest();
+        HashMap<String, String> results = new HashMap<>();
+        ArrayList<String> errors = readModel(g, body, results, new String[0]);
+        if (errors.size() != 0)
+            return invalid(400, errors);
+
+        g.loadHashMap(results);
+        if (!g.save())
+            return invalid(g);
+
+        return new Result(201, toMap(g));
+    }
+
+    /**
+     * Find a Guest
+     * @param id id of Guest
+     * @return 200 with the Guest
+     */
+    public Result getGuest(String id) {
+        Guest g = new Guest().find("id", id);
+        if (g == null)
+            return notFound("Guest");
+
+        return new Result(200, toMap(g));
+    }
+
+    /**
+     * List Reservations
+     * @param query optional reservationStatus, guestId and roomId to match, optional limit on the number of Reservations
+     * @return 200 with the Reservations
+     */
+    public Result listReservations(Map<String, String> query) {
+        Query<Reservation> search = new Reservation().query();
+        for (String var : new String[] {"reservationStatus", "guestId", "roomId"})
+            if (query.containsKey(var))
+                search.is(var, query.get(var));
+
+        try {
+            if (query.containsKey("limit"))
+                search.limit(Integer.parseInt(query.get("limit")));
+        } catch (NumberFormatException e) {
+            return error(400, "limit is invalid.");
+        }
+
+        ArrayList<Object> results = new ArrayList<>();
+        for (Reservation rsv : search.findAll())
+            results.add(toMap(rsv));
+
+        return new Result(200, results);
+    }
+
+    /**
+     * Find a Reservation
+     * @param code reservation code
+     * @return 200 with the Reservation
+     */
+    public Result getReservation(String code) {
+        Reservation rsv = new Reservation().find("reservationCode", code);
+        if (rsv == null)
+            return notFound("Reservation");
+
+        return new Result(200, toMap(rsv));
+    }
+
+    /**
+     * Create a Reservation, like ReservationControl. Walk ins are checked in at once
+     * @param body guestId, attributes of Reservation.getEditableList(), optional roomId, roomType and walkIn
+     * @return 201 with the Reservation
+     */
+    public Result createReservation(Map<String, Object> body) {
+        Guest guest = new Guest().find("id", string(body.get("guestId")));
+        if (guest == null)
+            return notFound("Guest");
+
+        Reservation rsv = new Reservation();
+        rsv.setGuest(guest);
+        rsv.setReservationStatus(Reservation.ReservationStatus.CONFIRMED);
+
+        boolean walkIn = Boolean.parseBoolean(string(body.get("walkIn")));
+        String blacklist[] = new String[0];
+        HashMap<String, String> results = new HashMap<>();
+        if (walkIn) {
+            blacklist = new String[] {"checkInDate"};
+            results.put("checkInDate", new SimpleDateFormat(Reservation.dateFormat).format(new Date()));
+            rsv.setWalkIn(true);
+        }
+
+        ArrayList<String> errors = readModel(rsv, body, results, blacklist);
+        if (errors.size() != 0)
+            return invalid(400, errors);
+        rsv.loadHashMap(results);
+
+        // Given Room, otherwise the Rooms free for the dates of stay
+        Room rooms[];
+        if (body.get("roomId") != null) {
+            Room room = new Room().find("roomId", string(body.get("roomId")));
+            if (room == null)
+                return notFound("Room");
+            rooms = new Room[] {room};
+        } else {
+            Room.RoomType roomType = null;
+            if (body.get("roomType") != null) {
+                try {
+                    roomType = Room.RoomType.valueOf(string(body.get("roomType")));
+                } catch (IllegalArgumentException e) {
+                    return error(400, "Room Type is invalid.");
+                }
+            }
+
+            rooms = Availability.findVacantRooms(roomType, rsv.getCheckInDate(), rsv.getCheckOutDate());
+            if (rooms.length == 0)
+                return error(409, "There are no rooms available for the selected dates.");
+        }
+
+        // Another request may reserve a Room first, then the next Room free is tried
+        boolean saved = false;
+        for (int i = 0; i < rooms.length && !saved; i++) {
+            rsv.setRoom(rooms[i]);
+            saved = rsv.save();
+            if (!saved && Availability.isAvailable(rooms[i], rsv.getCheckInDate(), rsv.getCheckOutDate()))
+                break;
+        }
+        if (!saved)
+            return invalid(rsv);
+        if (walkIn) {
+            rsv = rsv.checkout();
+            if (!rsv.checkIn())
+                return invalid(rsv);
+        }
+
+        return new Result(201, toMap(rsv));
+    }
+
+    /**
+     * Check in a CONFIRMED Reservation
+     * @param code reservation code
+     * @param body optional version the Reservation is expected to be at
+     * @return 200 with the Reservation
+     */
+    public Result checkIn(String code, Map<String, Object> body) {
+        Reservation rsv = new Reservation().find("reservationCode", code, "reservationStatus", Reservation.ReservationStatus.CONFIRMED.toString());
+        if (rsv == null)
+            return notFound("Reservation");
+
+        rsv = rsv.checkout();
+        Result conflict = checkVersion(rsv, body);
+        if (conflict != null)
+            return conflict;
+        if (!rsv.checkIn())
+            return invalid(rsv);
+
+        return new Result(200, toMap(rsv));
+    }
+
+    /**
+     * Check out a CHECKED_IN Reservation
+     * @param code reservation code
+     * @param body optional version the Reservation is expected to be at
+     * @return 200 with the Reservation and its Payment
+     */
+    public Result checkOut(String code, Map<String, Object> body) {
+        Reservation rsv = new Reservation().find("reservationCode", code, "reservationStatus", Reservation.ReservationStatus.CHECKED_IN.toString());
+        if (rsv == null)
+            return notFound("Reservation");
+
+        rsv = rsv.checkout();
+        Result conflict = checkVersion(rsv, body);
+        if (conflict != null)
+            return conflict;
+
+        Payment p = new Payment(rsv);
+        ArrayList<Object> orders = new ArrayList<>();
+        for (RoomService rs : rsv.getRoomServices())
+            orders.add(toMap(rs));
+
+        LinkedHashMap<String, Object> payment = new LinkedHashMap<>();
+        payment.put("roomTotal", p.getRoomTotal());
+        payment.put("roomServices", orders);
+        payment.put("roomServiceTotal", p.getRoomServiceTotal());
+        payment.put("serviceCharge", p.getServiceCharge());
+        payment.put("serviceChargeTotal", p.getServiceChargeTotal());
+        payment.put("total", p.getTotal());
+
+        if (!rsv.checkOut())
+            return invalid(rsv);
+
+        LinkedHashMap<String, Object> results = toMap(rsv);
+        results.put("payment", payment);
+        return new Result(200, results);
+    }
+
+    /**
+     * List Rooms free for the dates of stay
+     * @param query checkInDate, checkOutDate and optional roomType, bedType, facing, wifiEnabled, smokingAllowed and roomFloor.
+     *              Several values may be separated by commas, e.g. facing=SEA_VIEW,CITY_VIEW
+     * @return 200 with the Rooms
+     */
+    public Result vacantRooms(Map<String, String> query) {
+        SimpleDateFormat sdf = new SimpleDateFormat(Reservation.dateFormat);
+        sdf.setLenient(false);
+
+        Date checkIn, checkOut;
+        try {
+            checkIn = sdf.parse(String.valueOf(query.get("checkInDate")));
+            checkOut = sdf.parse(String.valueOf(query.get("checkOutDate")));
+        } catch (ParseException e) {
+            return error(400, String.format("checkInDate and checkOutDate (%s) are required to be valid.", Reservation.dateFormat));
+        }
+
+        ArrayList<String> errors = new ArrayList<>();
+        Criteria criteria = readCriteria(new Room(), query, errors, "roomType", "bedType", "facing", "wifiEnabled", "smokingAllowed", "roomFloor");
+        if (errors.size() != 0)
+            return error(400, String.join(" ", errors));
+
+        ArrayList<Object> results = new ArrayList<>();
+        for (Room r : Availability.findVacantRooms(criteria, checkIn, checkOut))
+            results.add(toMap(r));
+
+        return new Result(200, results);
+    }
+
+    /**
+     * Set a VACANT Room for maintenance or a Room under maintenance as VACANT, like MaintenanceControl
+     * @param roomId id of Room
+     * @param body status of the Room, optional version the Room is expected to be at
+     * @return 200 with the Room
+     */
+    public Result setRoomStatus(String roomId, Map<String, Object> body) {
+        Room r = new Room().find("roomId", roomId);
+        if (r == null)
+            return notFound("Room");
+
+        Room.RoomStatus status, prevStatus;
+        if (Room.RoomStatus.UNDER_MAINTENANCE.toString().equals(body.get("status"))) {
+            status = Room.RoomStatus.UNDER_MAINTENANCE;
+            prevStatus = Room.RoomStatus.VACANT;
+        } else if (Room.RoomStatus.VACANT.toString().equals(body.get("status"))) {
+            status = Room.RoomStatus.VACANT;
+            prevStatus = Room.RoomStatus.UNDER_MAINTENANCE;
+        } else {
+            return error(400, "Room Status can only be set to VACANT or UNDER_MAINTENANCE.");
+        }
+
+        Room.RoomStatus current = Availability.getStatus(r);
+        if (current != prevStatus)
+            return error(409, String.format("Room is currently %s. Cannot be updated.", r.getAttributeLabel(current.toString())));
+
+        r = r.checkout();
+        Result conflict = checkVersion(r, body);
+        if (conflict != null)
+            return conflict;
+
+        r.setStatus(status);
+        if (!r.save())
+            return invalid(r);
+
+        return new Result(200, toMap(r));
+    }
+
+    /**
+     * Order Room Service for a CHECKED_IN Reservation, like RoomServiceControl
+     * @param body reservationCode, remarks and items, a list of name and qty of Menu Items
+     * @return 201 with the order
+     */
+    public Result createRoomService(Map<String, Object> body) {
+        Reservation rsv = new Reservation().find("reservationCode", string(body.get("reservationCode")));
+        if (rsv == null)
+            return notFound("Reservation");
+        if (rsv.getReservationStatus() != Reservation.ReservationStatus.CHECKED_IN)
+            return error(409, "Reservation has not been checked in.");
+
+        RoomService rs = new RoomService();
+        rs.setReservation(rsv);
+        rs.setRemarks(body.get("remarks") == null ? "" : string(body.get("remarks")));
+
+        Object items = body.get("items");
+        if (!(items instanceof List))
+            return error(400, "No menu items have been added to the order.");
+
+        for (Object item : (List) items) {
+            Map<String, Object> values = Json.asObject(item);
+            if (values == null)
+                return error(400, "Menu items are invalid.");
+
+            MenuItem mi = new MenuItem().find("name", string(values.get("name")));
+            if (mi == null)
+                return notFound("Menu Item");
+
+            OrderMenuItem omi = new OrderMenuItem();
+            omi.setMenuItem(mi);
+            try {
+                omi.setQty(Integer.parseInt(string(values.get("qty"))));
+            } catch (NumberFormatException e) {
+                return error(400, "Quantity is invalid.");
+            }
+            rs.addMenuItem(omi);
+        }
+
+        if (!rs.save())
+            return invalid(rs);
+
+        return new Result(201, toMap(rs));
+    }
+
+    /**
+     * Mark a Room Service order as PREPARING or DELIVERED
+     * @param id id of the order
+     * @param body status of the order
+     * @return 200 with the order
+     */
+    public Result setRoomServiceStatus(String id, Map<String, Object> body) {
+        RoomService rs = new RoomService().find("id", id);
+        if (rs == null)
+            return notFound("Room Service Order");
+
+        RoomService.OrderStatus status;
+        try {
+            status = RoomService.OrderStatus.valueOf(string(body.get("status")));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return error(400, "Order Status is invalid.");
+        }
+
+        rs = rs.checkout();
+        Result conflict = checkVersion(rs, body);
+        if (conflict != null)
+            return conflict;
+
+        rs.setStatus(status);
+        if (!rs.save())
+            return invalid(rs);
+
+        return new Result(200, toMap(rs));
+    }
+
+    /**
+     * Room Status Report
+     * @return 200 with the ids of Rooms of every status
+     */
+    public Result roomStatusReport() {
+        HashMap<String, Room[]> report = new Report().genRoomStatus();
+
+        LinkedHashMap<String, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Room[]> e : report.entrySet())
+            results.put(e.getKey(), roomIds(e.getValue()));
+
+        return new Result(200, results);
+    }
+
+    /**
+     * Room Type Occupancy Report
+     * @param query status of Rooms to be matched, VACANT if not given
+     * @return 200 with the ids of matched and unmatched Rooms of every Room Type
+     */
+    public Result occupancyReport(Map<String, String> query) {
+        Room.RoomStatus status;
+        try {
+            status = Room.RoomStatus.valueOf(query.getOrDefault("status", Room.RoomStatus.VACANT.toString()));
+        } catch (IllegalArgumentException e) {
+            return error(400, "Room Status is invalid.");
+        }
+
+        HashMap<String, HashMap<String, Room[]>> report = new Report().genRoomTypeOccupancy(status);
+
+        LinkedHashMap<String, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<String, HashMap<String, Room[]>> e : report.entrySet()) {
+            Room matched[] = e.getValue().get("matched");
+            Room unmatched[] = e.getValue().get("unmatched");
+
+            LinkedHashMap<String, Object> roomType = new LinkedHashMap<>();
+            roomType.put("matched", roomIds(matched));
+            roomType.put("unmatched", roomIds(unmatched));
+            roomType.put("rate", matched.length + unmatched.length == 0 ? 0.0 : (double) matched.length / (matched.length + unmatched.length));
+            results.put(e.getKey(), roomType);
+        }
+
+        return new Result(200, results);
+    }
+
+    /**
+     * Check the values of body against the editable list of an Entity, like Boundary.processVar
+     * @param entity Entity Object
+     * @param body values given
+     * @param results values as saved in the files
+     * @param blacklist variables not to be read
+     * @return errors, empty if valid
+     */
+    private ArrayList<String> readModel(Entity<?> entity, Map<String, Object> body, HashMap<String, String> results, String[] blacklist) {
+        ArrayList<String> errors = new ArrayList<>();
+        HashMap<String, Enum<?>[]> enumList = entity.getEnumList();
+
+        for (String[] vars : entity.getEditableList()) {
+            String var = vars[0];
+            if (Arrays.asList(blacklist).contains(var))
+                continue;
+
+            String text = entity.getAttributeLabel(var);
+            String input = string(body.get(var));
+            if (input == null || input.equals("")) {
+                errors.add(String.format("%s is required.", text));
+                continue;
+            }
+
+            try {
+                switch (Entity.Types.valueOf(vars[1])) {
+                    case ENUM:
+                        boolean found = false;
+                        for (Enum<?> e : enumList.get(var))
+                            found |= e.toString().equals(input);
+                        if (!found)
+                            throw new IllegalArgumentException();
+                        break;
+                    case BOOLEAN:
+                        if (!input.equals("true") && !input.equals("false"))
+                            throw new IllegalArgumentException();
+                        break;
+                    case GENDER:
+                        input = input.toUpperCase();
+                        if (!input.equals("M") && !input.equals("F"))
+                            throw new IllegalArgumentException();
+                        break;
+                    case INT:
+                        input = Integer.toString(Integer.parseInt(input));
+                        break;
+                    case DOUBLE:
+                    case CURRENCY:
+                        input = Double.toString(Double.parseDouble(input));
+                        break;
+                    case DATE:
+                        SimpleDateFormat sdf = new SimpleDateFormat(entity.getDateFormat());
+                        sdf.setLenient(false);
+                        input = sdf.format(sdf.parse(input));
+                        break;
+                }
+                results.put(var, input);
+            } catch (IllegalArgumentException | ParseException e) {
+                errors.add(String.format("%s is invalid.", text));
+            }
+        }
+
+        return errors;
+    }
+
+    /**
+     * Criteria of the variables given in a query, checked against the editable list of an Entity like readModel
+     * @param entity Entity Object
+     * @param query values given, several values of a variable separated by commas
+     * @param errors receives the errors of invalid values
+     * @param vars variables that may be given
+     * @return Criteria matching any of the values of every variable given
+     */
+    private Criteria readCriteria(Entity<?> entity, Map<String, String> query, ArrayList<String> errors, String... vars) {
+        Criteria criteria = Criteria.all();
+        for (String var : vars) {
+            if (query.get(var) == null)
+                continue;
+
+            ArrayList<String> blacklist = new ArrayList<>();
+            for (String[] o : entity.getEditableList())
+                if (!o[0].equals(var))
+                    blacklist.add(o[0]);
+
+            ArrayList<String> values = new ArrayList<>();
+            for (String value : query.get(var).split(",")) {
+                HashMap<String, String> results = new HashMap<>();
+                errors.addAll(readModel(entity, Collections.singletonMap(var, value.trim()), results, blacklist.toArray(new String[blacklist.size()])));
+                if (results.get(var) != null)
+                    values.add(results.get(var));
+            }
+            criteria = criteria.and(Criteria.in(var, values.toArray(new String[values.size()])));
+        }
+
+        return criteria;
+    }
+
+    /**
+     * Check the version given in body against a working copy from Entity.checkout().
+     * Saving the copy fails if another thread saves the Entity after it was checked out
+     * @param entity working copy of the Entity
+     * @param body optional version
+     * @return 409 if the Entity is no longer at the version, null otherwise
+     */
+    private Result checkVersion(Entity<?> entity, Map<String, Object> body) {
+        Object version = body.get(Entity.VERSION);
+        if (version != null && !string(version).equals(Long.toString(entity.getVersion())))
+            return error(409, "This record has been changed by another session. Please try again.");
+
+        return null;
+    }
+
+    /**
+     * Result of a failed request
+     * @param status HTTP status
+     * @param message error message
+     * @return Result with the error message
+     */
+    public static Result error(int status, String message) {
+        return invalid(status, Collections.singletonList(message));
+    }
+
+    /**
+     * Result of a failed save. Only new records and working copies of the request are saved, so no other request sees the changes
+     * @param entity Entity Object
+     * @return 409 if another request saved the Entity first, 422 otherwise
+     */
+    private static Result invalid(Entity<?> entity) {
+        ArrayList<String> errors = new ArrayList<>(Arrays.asList(entity.getErrors()));
+        if (errors.size() == 0)
+            errors.add("Failed to save the record.");
+
+        return invalid(entity.hasConflict() ? 409 : 422, errors);
+    }
+
+    private static Result invalid(int status, List<String> errors) {
+        LinkedHashMap<String, Object> results = new LinkedHashMap<>();
+        results.put("errors", errors);
+        return new Result(status, results);
+    }
+
+    private Result notFound(String name) {
+        return error(404, String.format("%s not found.", name));
+    }
+
+    private LinkedHashMap<String, Object> toMap(Entity<?> entity) {
+        LinkedHashMap<String, Object> results = new LinkedHashMap<>(entity.toHashMap());
+        results.put(Entity.VERSION, entity.getVersion());
+
+        // Card numbers are never sent out
+        if (entity instanceof Guest)
+            results.remove("creditCard");
+
+        // Orders include their Menu Items
+        if (entity instanceof RoomService) {
+            RoomService rs = (RoomService) entity;
+            ArrayList<Object> items = new ArrayList<>();
+            for (OrderMenuItem omi : rs.getMenuItems())
+                items.add(omi.toHashMap());
+            results.put("items", items);
+            results.put("total", rs.getTotal());
+        }
+
+        return results;
+    }
+
+    private ArrayList<String> roomIds(Room[] rooms) {
+        ArrayList<String> results = new ArrayList<>();
+        for (Room r : rooms)
+            results.add(r.getRoomId());
+        return results;
+    }
+
+    private String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -92,11 +92,15 @@ public class GuestControl implements Control {
         if (g == null)
             return null;
 
+        // Only saved if no other session saved the Guest meanwhile
+        g = g.checkout();
         boolean response = gb.updateRecord(g);
-        if (response)
-            g.save();
-        else
+        if (!response) {
             g.revertOldData();
+        } else if (!g.save() && g.hasConflict()) {
+            gb.printErrors(g);
+            g.revertOldData();
+        }
 
         return g;
     }
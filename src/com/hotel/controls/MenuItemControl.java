@@ -71,12 +71,15 @@ public class MenuItemControl implements Control {
         if (item == null)
             return;
 
+        item = item.checkout();
         boolean update = mib.checkRecord(item, "Menu Information", true);
         if (update) {
             if (item.save())
                 mib.saveSuccessful();
             else
                 mib.printErrors(item);
+            if (item.hasConflict())
+                item.revertOldData();
         } else
             item.revertOldData();
     }
@@ -87,6 +90,7 @@ public class MenuItemControl implements Control {
         if (item == null)
             return;
 
+        item = item.checkout();
         boolean delete = mib.checkRecord(item, "Menu Information", false);
         if (delete) {
             if (item.delete())
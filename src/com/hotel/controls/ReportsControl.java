@@ -56,8 +56,8 @@ public class ReportsControl implements Control {
      */
     private void reportRoomTypeOccupancy() {
         Room r = new Room();
-        Enum roomStatus = rb.processEnum("Choose Room Type", Room.RoomStatus.values(), r);
-        HashMap result = new Report().genRoomTypeOccupancy(Room.RoomStatus.valueOf(roomStatus.toString()));
+        Enum<?> roomStatus = rb.processEnum("Choose Room Type", Room.RoomStatus.values(), r);
+        HashMap<String, HashMap<String, Room[]>> result = new Report().genRoomTypeOccupancy(Room.RoomStatus.valueOf(roomStatus.toString()));
         rb.printRoomTypeOccupancy(result, r);
     }
 
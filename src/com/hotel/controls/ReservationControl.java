@@ -2,6 +2,10 @@ package com.hotel.controls;
 
 import com.hotel.boundaries.ReservationBoundary;
 import com.hotel.core.Control;
+import com.hotel.core.Criteria;
+import com.hotel.core.DateManager;
+import com.hotel.core.Entity;
+import com.hotel.entities.Availability;
 import com.hotel.entities.Guest;
 import com.hotel.entities.Payment;
 import com.hotel.entities.Reservation;
@@ -84,14 +88,15 @@ public class ReservationControl implements Control {
      * Print all reservations with CONFIRMED status
      */
     private void printAllReservation() {
-        new Reservation().checkExpiredReservations();
-
         Reservation[] rsvList = new Reservation().findAll("reservationStatus", Reservation.ReservationStatus.CONFIRMED.toString());
         if (rsvList.length == 0) {
             rb.noResultsFound();
             return;
         }
 
+        // Fetch all Guests and Rooms in one pass
+        Entity.resolveAll(rsvList);
+
         String rsvString[] = new String[rsvList.length + 1];
 
         rsvString[0] = "Reservations List";
@@ -113,8 +118,6 @@ public class ReservationControl implements Control {
      * @param isWalkIn walk in or reservation
      */
     private void createReservation(boolean isWalkIn) {
-        new Reservation().checkExpiredReservations();
-
         int input = rb.process(createMenu);
         switch (input) {
             case 1:
@@ -161,21 +164,8 @@ public class ReservationControl implements Control {
     private void createReservation(Guest guest, boolean isWalkIn){
         Reservation rsv = new Reservation();
 
-        if (new Room().findAll("status", Room.RoomStatus.VACANT.toString()).length <= 0) {
-            rb.printRoomsFull();
-            return;
-        }
-
-        // Search for Room
-        RoomControl rc = new RoomControl();
-        Room room;
-        do {
-            room = rc.selectRoom();
-        } while (room == null);
-
         // Get Reservation Attributes
         rsv.setGuest(guest);
-        rsv.setRoom(room);
         rsv.setReservationStatus(Reservation.ReservationStatus.CONFIRMED);
 
         String blacklist[] = {"checkInDate"};
@@ -190,6 +180,18 @@ public class ReservationControl implements Control {
 
         rb.processModel(rsv, "", results, blacklist);
 
+        if (Availability.findVacantRooms(Criteria.all(), rsv.getCheckInDate(), rsv.getCheckOutDate()).length <= 0) {
+            rb.printRoomsFull();
+            return;
+        }
+
+        // Search for Room free for the dates of stay
+        RoomControl rc = new RoomControl();
+        Room room;
+        do {
+            room = rc.selectRoom(rsv.getCheckInDate(), rsv.getCheckOutDate());
+        } while (room == null);
+        rsv.setRoom(room);
 
         boolean success;
         do {
@@ -199,7 +201,7 @@ public class ReservationControl implements Control {
                 success = rsv.save();
 
                 if (success && isWalkIn) {
-                    confirmCheckIn(rsv);
+                    confirmCheckIn(rsv.checkout());
                 } else if (success) {
                     rb.println(String.format("Reservation is successful. Reservation Code: %s", rsv.getReservationCode()));
                 } else {
@@ -265,10 +267,17 @@ public class ReservationControl implements Control {
         if (r == null)
             return;
 
-        // Check if Reservation Exists
-        Reservation rsv = new Reservation().find("roomId", r.getRoomId(), "reservationStatus", Reservation.ReservationStatus.CONFIRMED.toString());
+        // A Room may be booked for later dates too. Only the Reservation arriving today is checked in
+        long today = DateManager.getEpochDay(new Date());
+        Reservation rsv = null;
+        for (Reservation o : new Reservation().findAll("roomId", r.getRoomId(), "reservationStatus", Reservation.ReservationStatus.CONFIRMED.toString())) {
+            if (DateManager.getEpochDay(o.getCheckInDate()) == today) {
+                rsv = o;
+                break;
+            }
+        }
         if (rsv == null) {
-            rb.noResultsFound();
+            rb.println("No Reservation of this Room checks in today.");
             return;
         }
 
@@ -292,7 +301,8 @@ public class ReservationControl implements Control {
      * @param rsv Reservation Entity
      */
     private void processCheckIn(Reservation rsv) {
-        // Confirm check in and check in user
+        // Confirm check in and check in user. Fails if another desk changes the Reservation meanwhile
+        rsv = rsv.checkout();
         if (rb.confirmCheckIn(rsv))
             confirmCheckIn(rsv);
     }
@@ -396,6 +406,8 @@ public class ReservationControl implements Control {
      * @param rsv Reservation Entity
      */
     private void processCheckOut(Reservation rsv) {
+        // Fails if another desk changes the Reservation meanwhile
+        rsv = rsv.checkout();
         Payment p = new Payment(rsv);
         if (rb.printPayment(p)) {
             if (rsv.checkOut())
@@ -2,9 +2,13 @@ package com.hotel.controls;
 
 import com.hotel.boundaries.RoomBoundary;
 import com.hotel.core.Control;
+import com.hotel.core.Criteria;
+import com.hotel.entities.Availability;
 import com.hotel.entities.Guest;
 import com.hotel.entities.Room;
 
+import java.util.Date;
+
 /**
  * Room Control Object
  * Fetch information from Room Entity and pass on to Room Boundary
@@ -21,11 +25,18 @@ public class RoomControl implements Control {
     @Override
     public void process() {}
 
-    protected Room selectRoom() {
+    /**
+     * Select a Room of a Room Type that is free for the whole stay, optionally matching bed type, facing, wifi, smoking and floor
+     * @param checkIn Check in Date
+     * @param checkOut Check out Date
+     * @return Room Entity, null if no Room is available
+     */
+    protected Room selectRoom(Date checkIn, Date checkOut) {
         Room r = new Room();
-        Enum e = rb.processEnum("Select Room Type", Room.RoomType.values(), r);
+        Enum<?> e = rb.processEnum("Select Room Type", Room.RoomType.values(), r);
+        Criteria criteria = rb.processCriteria(Criteria.is("roomType", e.toString()));
 
-        Room rList[] = r.findAll("roomType", e.toString(), "status", Room.RoomStatus.VACANT.toString());
+        Room rList[] = Availability.findVacantRooms(criteria, checkIn, checkOut);
         if (rList.length == 0) {
             rb.noResultsFound();
             return null;
@@ -52,11 +63,14 @@ public class RoomControl implements Control {
             return;
         }
 
-        if (r.getStatus() != prevStatus) {
-            System.out.println(String.format("Room is currently %s. Cannot be updated.", r.getAttributeLabel(r.getStatus().toString())));
+        // A Room held tonight by a Reservation is not VACANT, even if it was booked before the day of arrival
+        Room.RoomStatus status = Availability.getStatus(r);
+        if (status != prevStatus) {
+            System.out.println(String.format("Room is currently %s. Cannot be updated.", r.getAttributeLabel(status.toString())));
             return;
         }
 
+        r = r.checkout();
         boolean update = rb.checkRecord(r, "Room Details", false);
 
         if (!update)
@@ -64,10 +78,15 @@ public class RoomControl implements Control {
 
         // Update Room Status
         r.setStatus(roomStatus);
-        if (r.save())
+        if (r.save()) {
             System.out.println(String.format("Room has been set %s.", r.getAttributeLabel(roomStatus.toString())));
-        else
+        } else {
             System.out.println("Failed to updated Room");
+            if (r.hasConflict()) {
+                rb.printErrors(r);
+                r.revertOldData();
+            }
+        }
 
     }
 
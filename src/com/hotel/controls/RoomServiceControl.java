@@ -2,6 +2,7 @@ package com.hotel.controls;
 
 import com.hotel.core.Boundary;
 import com.hotel.core.Control;
+import com.hotel.core.Entity;
 import com.hotel.entities.*;
 
 import java.util.ArrayList;
@@ -212,6 +213,9 @@ public class RoomServiceControl implements Control {
             return;
         }
 
+        // Fetch all Reservations, Rooms and Guests in one pass
+        Entity.resolveAll(rsList);
+
         ArrayList<String> al = new ArrayList<>();
         al.add("Choose Order:");
         for (RoomService rs : rsList)
@@ -221,7 +225,8 @@ public class RoomServiceControl implements Control {
         if (input == 0)
             return;
 
-        RoomService rs = rsList[input - 1];
+        // Only saved if no other session saved the order meanwhile
+        RoomService rs = rsList[input - 1].checkout();
 
         // Print Order
         do {
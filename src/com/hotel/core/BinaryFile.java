@@ -0,0 +1,336 @@
+package com.hotel.core;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Compact binary format of a file of records
+ * The file starts with a schema of every variable followed by the records. Each variable is stored as one of
+ * STRING, ENUM (index into the values listed in the schema), DATE (epoch millis), INT (varint) or DOUBLE (8 bytes).
+ * Dates are converted in UTC, so a file reads back the same text in any time zone. Version 1 files used the local time zone.
+ * A variable is only stored as a type if every value converts back to exactly the same text.
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+class BinaryFile {
+    private static final int MAGIC = 0x48525342;
+    private static final int VERSION = 2;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static final int STRING = 0;
+    private static final int ENUM = 1;
+    private static final int DATE = 2;
+    private static final int INT = 3;
+    private static final int DOUBLE = 4;
+
+    // Date formats of Entities that can be stored as epoch millis
+    private static final String[] DATE_FORMATS = {"yyyy-MM-dd HHmm", "yyyy-MM-dd-H-m"};
+    // Largest number of distinct values stored as ENUM
+    private static final int MAX_ENUM = 256;
+
+    /**
+     * Variable of a record and how it is stored
+     */
+    private static class Column {
+        private String name;
+        private int type;
+        private SimpleDateFormat dateFormat;
+        private ArrayList<String> values = new ArrayList<>();
+        private HashMap<String, Integer> ordinals = new HashMap<>();
+        // Text of DATE and DOUBLE values already read
+        private HashMap<Long, String> cache = new HashMap<>();
+
+        private Column(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Write records to a file
+     * @param filename File to be written to
+     * @param data ArrayList of HashMap objects
+     * @return Success of the function
+     */
+    static boolean write(String filename, ArrayList<HashMap<String, String>> data) {
+        LinkedHashMap<String, Column> columns = getSchema(data);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 65536))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            writeVarint(out, columns.size());
+            for (Column c : columns.values()) {
+                writeString(out, c.name);
+                out.writeByte(c.type);
+                if (c.type == DATE)
+                    writeString(out, c.dateFormat.toPattern());
+                if (c.type == ENUM) {
+                    writeVarint(out, c.values.size());
+                    for (String value : c.values)
+                        writeString(out, value);
+                }
+            }
+
+            int records = 0;
+            for (HashMap<String, String> record : data)
+                if (record.size() != 0)
+                    records++;
+            writeVarint(out, records);
+
+            byte[] present = new byte[(columns.size() + 7) / 8];
+            for (HashMap<String, String> record : data) {
+                if (record.size() == 0)
+                    continue;
+
+                Arrays.fill(present, (byte) 0);
+                int i = 0;
+                for (Column c : columns.values()) {
+                    if (record.containsKey(c.name))
+                        present[i / 8] |= 1 << (i % 8);
+                    i++;
+                }
+                out.write(present);
+
+                for (Column c : columns.values())
+                    if (record.containsKey(c.name))
+                        writeValue(out, c, String.valueOf(record.get(c.name)));
+            }
+            return true;
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Read a file record by record. The HashMap is reused for the next record.
+     * @param filename File to be read
+     * @param consumer receives each record
+     * @return Success of the function
+     */
+    static boolean read(String filename, Consumer<HashMap<String, String>> consumer) {
+        try {
+            File f = new File(filename);
+            if (!f.exists())
+                f.createNewFile();
+            if (f.length() == 0)
+                return true;
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 65536))) {
+                int version = in.readInt() == MAGIC ? in.readUnsignedByte() : -1;
+                if (version != 1 && version != VERSION)
+                    throw new IOException("Unknown format");
+
+                Column[] columns = new Column[readVarint(in)];
+                for (int i = 0; i < columns.length; i++) {
+                    Column c = new Column(readString(in));
+                    c.type = in.readUnsignedByte();
+                    if (c.type == DATE) {
+                        c.dateFormat = new SimpleDateFormat(readString(in));
+                        if (version != 1)
+                            c.dateFormat.setTimeZone(UTC);
+                    }
+                    if (c.type == ENUM) {
+                        int n = readVarint(in);
+                        for (int j = 0; j < n; j++)
+                            c.values.add(readString(in));
+                    }
+                    columns[i] = c;
+                }
+
+                int records = readVarint(in);
+                byte[] present = new byte[(columns.length + 7) / 8];
+                HashMap<String, String> record = new HashMap<>();
+                for (int r = 0; r < records; r++) {
+                    in.readFully(present);
+                    record.clear();
+                    for (int i = 0; i < columns.length; i++)
+                        if ((present[i / 8] & (1 << (i % 8))) != 0)
+                            record.put(columns[i].name, readValue(in, columns[i]));
+
+                    consumer.accept(record);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.printf("File is invalid: %s\n", filename);
+        }
+
+        return false;
+    }
+
+    /**
+     * Choose the type of every variable from all its values
+     * @param data ArrayList of HashMap objects
+     * @return variable name -> Column
+     */
+    private static LinkedHashMap<String, Column> getSchema(ArrayList<HashMap<String, String>> data) {
+        LinkedHashMap<String, LinkedHashSet<String>> values = new LinkedHashMap<>();
+        for (HashMap<String, String> record : data)
+            for (Map.Entry<String, String> o : record.entrySet())
+                values.computeIfAbsent(o.getKey(), k -> new LinkedHashSet<>()).add(String.valueOf(o.getValue()));
+
+        LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
+        for (Map.Entry<String, LinkedHashSet<String>> o : values.entrySet()) {
+            Column c = new Column(o.getKey());
+            LinkedHashSet<String> distinct = o.getValue();
+
+            if (all(distinct, BinaryFile::isInt)) {
+                c.type = INT;
+            } else if (all(distinct, BinaryFile::isDouble)) {
+                c.type = DOUBLE;
+            } else if ((c.dateFormat = getDateFormat(distinct)) != null) {
+                c.type = DATE;
+            } else if (distinct.size() <= MAX_ENUM && distinct.size() * 4 <= data.size()) {
+                c.type = ENUM;
+                for (String value : distinct) {
+                    c.ordinals.put(value, c.values.size());
+                    c.values.add(value);
+                }
+            } else {
+                c.type = STRING;
+            }
+            columns.put(c.name, c);
+        }
+
+        return columns;
+    }
+
+    private static boolean all(Collection<String> values, Predicate<String> test) {
+        for (String value : values)
+            if (!test.test(value))
+                return false;
+
+        return true;
+    }
+
+    private static boolean isInt(String value) {
+        try {
+            return Long.toString(Long.parseLong(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDouble(String value) {
+        try {
+            return Double.toString(Double.parseDouble(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Find a date format that every value is written in
+     * @param values distinct values of a variable
+     * @return date format, null if none
+     */
+    private static SimpleDateFormat getDateFormat(Collection<String> values) {
+        for (String format : DATE_FORMATS) {
+            SimpleDateFormat sdf = new SimpleDateFormat(format);
+            sdf.setLenient(false);
+            sdf.setTimeZone(UTC);
+
+            boolean match = true;
+            for (String value : values) {
+                try {
+                    if (!sdf.format(sdf.parse(value)).equals(value)) {
+                        match = false;
+                        break;
+                    }
+                } catch (ParseException e) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match)
+                return sdf;
+        }
+
+        return null;
+    }
+
+    private static void writeValue(DataOutputStream out, Column c, String value) throws IOException, ParseException {
+        switch (c.type) {
+            case ENUM:
+                writeVarint(out, c.ordinals.get(value));
+                break;
+            case DATE:
+                writeVarlong(out, c.dateFormat.parse(value).getTime());
+                break;
+            case INT:
+                writeVarlong(out, Long.parseLong(value));
+                break;
+            case DOUBLE:
+                out.writeDouble(Double.parseDouble(value));
+                break;
+            default:
+                writeString(out, value);
+        }
+    }
+
+    private static String readValue(DataInputStream in, Column c) throws IOException {
+        switch (c.type) {
+            case ENUM:
+                return c.values.get(readVarint(in));
+            case DATE:
+                return c.cache.computeIfAbsent(readVarlong(in), millis -> c.dateFormat.format(new Date(millis)));
+            case INT:
+                return Long.toString(readVarlong(in));
+            case DOUBLE:
+                return c.cache.computeIfAbsent(Double.doubleToRawLongBits(in.readDouble()), bits -> Double.toString(Double.longBitsToDouble(bits)));
+            default:
+                return readString(in);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        writeVarlong(out, value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        return (int) readVarlong(in);
+    }
+
+    /**
+     * Write a number in 7 bit groups, zigzag encoded so small negative numbers stay short
+     */
+    private static void writeVarlong(DataOutputStream out, long value) throws IOException {
+        value = (value << 1) ^ (value >> 63);
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarlong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
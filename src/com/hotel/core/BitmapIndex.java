@@ -0,0 +1,113 @@
+package com.hotel.core;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitmap index over the variables of a class with few distinct values, e.g. enums and booleans
+ * Every value has a bitmap with one bit per Entity, set at the sequence of the Entity in its store.
+ * Criteria are answered with AND, OR and NOT on whole words of the bitmaps, without comparing any Entity
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+class BitmapIndex {
+    // Entities in the index
+    private final BitSet all = new BitSet();
+    // Variable name -> lower case value -> Entities with the value
+    private final HashMap<String, HashMap<String, BitSet>> bitmaps = new HashMap<>();
+
+    /**
+     * Constructor of BitmapIndex
+     * @param attribs variables in the index
+     */
+    BitmapIndex(String[] attribs) {
+        for (String attrib : attribs)
+            bitmaps.put(attrib, new HashMap<>());
+    }
+
+    /**
+     * Add or move an Entity to the bitmaps of its values
+     * @param e Entity Object
+     * @param oldValues variable -> lower case value it was added under, null if not in the index
+     * @param values variable -> lower case value of every variable in the index
+     */
+    synchronized void put(Entity<?> e, HashMap<String, String> oldValues, HashMap<String, String> values) {
+        int bit = (int) e.getSequence();
+        if (oldValues != null)
+            clear(bit, oldValues);
+
+        for (Map.Entry<String, String> o : values.entrySet())
+            bitmaps.get(o.getKey()).computeIfAbsent(o.getValue(), k -> new BitSet()).set(bit);
+        all.set(bit);
+    }
+
+    /**
+     * Remove an Entity from the index
+     * @param e Entity Object
+     * @param oldValues variable -> lower case value it was added under
+     */
+    synchronized void remove(Entity<?> e, HashMap<String, String> oldValues) {
+        int bit = (int) e.getSequence();
+        clear(bit, oldValues);
+        all.clear(bit);
+    }
+
+    private void clear(int bit, HashMap<String, String> oldValues) {
+        for (Map.Entry<String, String> o : oldValues.entrySet()) {
+            BitSet bits = bitmaps.get(o.getKey()).get(o.getValue());
+            if (bits != null)
+                bits.clear(bit);
+        }
+    }
+
+    /**
+     * Check if every comparison of the Criteria is an exact match of a variable in the index
+     * @param criteria Criteria
+     * @return true if the Criteria can be answered from the index
+     */
+    boolean covers(Criteria criteria) {
+        switch (criteria.getOp()) {
+            case IS:
+                return bitmaps.containsKey(criteria.getVar());
+            case CONTAINS:
+                return false;
+            default:
+                for (Criteria c : criteria.getChildren())
+                    if (!covers(c))
+                        return false;
+                return true;
+        }
+    }
+
+    /**
+     * Entities matching the Criteria
+     * @param criteria Criteria with variables of the index only
+     * @return bits set at the sequence of every matching Entity
+     */
+    synchronized BitSet select(Criteria criteria) {
+        Criteria[] children = criteria.getChildren();
+        BitSet results;
+        switch (criteria.getOp()) {
+            case IS:
+                BitSet bits = bitmaps.get(criteria.getVar()).get(criteria.getValue());
+                return bits == null ? new BitSet() : (BitSet) bits.clone();
+            case AND:
+                results = select(children[0]);
+                for (int i = 1; i < children.length; i++)
+                    results.and(select(children[i]));
+                return results;
+            case OR:
+                results = select(children[0]);
+                for (int i = 1; i < children.length; i++)
+                    results.or(select(children[i]));
+                return results;
+            case NOT:
+                results = (BitSet) all.clone();
+                results.andNot(select(children[0]));
+                return results;
+            default:
+                return (BitSet) all.clone();
+        }
+    }
+}
@@ -80,7 +80,7 @@ public class Boundary {
      * @param <T>
      * @return Entity Object
      */
-    public <T> T processModel(String[][] editableList, HashMap<String, Enum[]> enumList, T t, String title, HashMap<String, String> results) {
+    public <T> T processModel(String[][] editableList, HashMap<String, Enum<?>[]> enumList, T t, String title, HashMap<String, String> results) {
         return processModel(editableList, enumList, t, title, results, new String[0]);
     }
 
@@ -92,7 +92,7 @@ public class Boundary {
      * @param <T> Entity Class
      * @return Entity Object
      */
-    public <T> T processModel(String[][] editableList, HashMap<String, Enum[]> enumList, T t, String title, HashMap<String, String> results, String[] blacklist) {
+    public <T> T processModel(String[][] editableList, HashMap<String, Enum<?>[]> enumList, T t, String title, HashMap<String, String> results, String[] blacklist) {
         if (title != "")
             println(title);
         Entity entity = (Entity) t;
@@ -119,17 +119,17 @@ public class Boundary {
      * @param results results to be returned
      * @return success or with errors
      */
-    public boolean processVar(String[] vars, HashMap<String, Enum[]> enumList, Entity entity, HashMap<String, String> results) {
+    public boolean processVar(String[] vars, HashMap<String, Enum<?>[]> enumList, Entity entity, HashMap<String, String> results) {
         String var = vars[0];
         String text = entity.getAttributeLabel(var);
-        Enum type = Types.valueOf(vars[1]);
+        Enum<?> type = Types.valueOf(vars[1]);
 
         boolean invalid;
         do {
             invalid = false;
             // Enum is special case. error is handled in processEnum
             if (type == Types.ENUM) {
-                Enum e = processEnum(text + ":", enumList.get(var), entity);
+                Enum<?> e = processEnum(text + ":", enumList.get(var), entity);
                 results.put(var, e.toString());
             } else {
                 String input = "";
@@ -224,11 +224,11 @@ public class Boundary {
      * @param entity Entity Object
      * @return user enum choice
      */
-    public Enum processEnum(String text, Enum[] eList, Entity entity) {
+    public Enum<?> processEnum(String text, Enum<?>[] eList, Entity entity) {
         String menuList[] = new String[eList.length + 1];
         menuList[0] = text;
         int i = 1;
-        for (Enum e : eList)
+        for (Enum<?> e : eList)
             menuList[i++] = entity.getAttributeLabel(e.toString());
 
         int input = processMenu(menuList, false, false);
@@ -286,12 +286,21 @@ public class Boundary {
      */
     public String getString() {
         System.out.print(">> ");
-        String input = s.nextLine();
+        String input = getScanner().nextLine();
         System.out.println();
 
         return input;
     }
 
+    /**
+     * Input of the Session of the current thread, otherwise the console
+     * @return Scanner
+     */
+    private Scanner getScanner() {
+        Scanner session = Session.getScanner();
+        return session == null ? s : session;
+    }
+
     /**
      * Print function not deployed
      */
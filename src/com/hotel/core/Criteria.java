@@ -0,0 +1,168 @@
+package com.hotel.core;
+
+import java.util.ArrayList;
+
+/**
+ * Conditions on the variables of an Entity, combined with AND, OR and NOT
+ * e.g. Criteria.is("bedType", "DOUBLE_BED").and(Criteria.in("facing", "SEA_VIEW", "CITY_VIEW")).and(Criteria.is("smokingAllowed", "true").not())
+ * Values are matched ignoring case, exactly or as part of the value with contains(). Criteria are never changed, every method returns a new object
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Criteria {
+    enum Op {
+        ALL, IS, CONTAINS, AND, OR, NOT
+    }
+
+    private final Op op;
+    private final String var;
+    private final String value;
+    private final Criteria[] children;
+
+    private Criteria(Op op, String var, String value, Criteria... children) {
+        this.op = op;
+        this.var = var;
+        this.value = value;
+        this.children = children;
+    }
+
+    /**
+     * Criteria matched by every object
+     * @return Criteria
+     */
+    public static Criteria all() {
+        return new Criteria(Op.ALL, null, null);
+    }
+
+    /**
+     * Variable equal to a value
+     * @param var Variable name
+     * @param value value of the variable, null to match objects without a value
+     * @return Criteria
+     */
+    public static Criteria is(String var, String value) {
+        return new Criteria(Op.IS, var, value == null ? "" : value.toLowerCase());
+    }
+
+    /**
+     * Variable containing the content
+     * @param var Variable name
+     * @param content part of the value of the variable, null to match every object with a value
+     * @return Criteria
+     */
+    public static Criteria contains(String var, String content) {
+        return new Criteria(Op.CONTAINS, var, content == null ? "" : content.toLowerCase());
+    }
+
+    /**
+     * Variable equal to any of the values
+     * @param var Variable name
+     * @param values values of the variable
+     * @return Criteria, matched by no object if there are no values
+     */
+    public static Criteria in(String var, String... values) {
+        if (values.length == 0)
+            return all().not();
+
+        Criteria results[] = new Criteria[values.length];
+        for (int i = 0; i < values.length; i++)
+            results[i] = is(var, values[i]);
+        return results.length == 1 ? results[0] : new Criteria(Op.OR, null, null, results);
+    }
+
+    /**
+     * Objects matching both this and other
+     * @param other Criteria
+     * @return Criteria
+     */
+    public Criteria and(Criteria other) {
+        if (op == Op.ALL)
+            return other;
+        if (other.op == Op.ALL)
+            return this;
+        return new Criteria(Op.AND, null, null, this, other);
+    }
+
+    /**
+     * Objects matching this, other or both
+     * @param other Criteria
+     * @return Criteria
+     */
+    public Criteria or(Criteria other) {
+        if (op == Op.ALL || other.op == Op.ALL)
+            return all();
+        return new Criteria(Op.OR, null, null, this, other);
+    }
+
+    /**
+     * Objects not matching this
+     * @return Criteria
+     */
+    public Criteria not() {
+        return new Criteria(Op.NOT, null, null, this);
+    }
+
+    /**
+     * Compare an object with the Criteria
+     * @param e Entity Object
+     * @return true if the object matches
+     */
+    public boolean matches(Entity<?> e) {
+        switch (op) {
+            case IS:
+                String test = e.getAttribute(var);
+                return test == null ? value.isEmpty() : test.equalsIgnoreCase(value);
+            case CONTAINS:
+                test = e.getAttribute(var);
+                return test != null && test.toLowerCase().contains(value);
+            case AND:
+                for (Criteria c : children)
+                    if (!c.matches(e))
+                        return false;
+                return true;
+            case OR:
+                for (Criteria c : children)
+                    if (c.matches(e))
+                        return true;
+                return false;
+            case NOT:
+                return !children[0].matches(e);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Criteria that all have to match for this to match, e.g. the children of nested ANDs
+     * @return ArrayList of Criteria, empty if every object matches
+     */
+    ArrayList<Criteria> getTerms() {
+        ArrayList<Criteria> results = new ArrayList<>();
+        if (op == Op.AND) {
+            for (Criteria c : children)
+                results.addAll(c.getTerms());
+        } else if (op != Op.ALL) {
+            results.add(this);
+        }
+        return results;
+    }
+
+    Op getOp() {
+        return op;
+    }
+
+    String getVar() {
+        return var;
+    }
+
+    /**
+     * @return lower case value
+     */
+    String getValue() {
+        return value;
+    }
+
+    Criteria[] getChildren() {
+        return children;
+    }
+}
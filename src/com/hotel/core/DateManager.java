@@ -2,8 +2,10 @@ package com.hotel.core;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -12,6 +14,18 @@ import java.util.concurrent.TimeUnit;
  * @version 1.0
  */
 public class DateManager {
+    // Formats of the current thread by pattern. SimpleDateFormat is costly to create and not thread safe
+    private static final ThreadLocal<HashMap<String, SimpleDateFormat>> formats = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Get a Date Format shared by the current thread. Do not change its settings
+     * @param pattern pattern of SimpleDateFormat
+     * @return SimpleDateFormat
+     */
+    public static SimpleDateFormat getFormat(String pattern) {
+        return formats.get().computeIfAbsent(pattern, SimpleDateFormat::new);
+    }
+
     /**
      * Get total days by end - start
      * @param start Start Date
@@ -57,4 +71,13 @@ public class DateManager {
 
         return workDays;
     }
+
+    /**
+     * Get the day of a Date counted from 1970-01-01 in the local time zone
+     * @param date Date
+     * @return epoch day
+     */
+    public static long getEpochDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
 }
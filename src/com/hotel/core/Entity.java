@@ -3,9 +3,12 @@ package com.hotel.core;
 import com.hotel.Config;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Handles Interaction with FileManager.
@@ -14,12 +17,49 @@ import java.util.Map;
  * @version 1.0
  */
 public abstract class Entity<T extends Entity<T>> {
+    // Variable holding the version of a record in the files
+    public static final String VERSION = "version";
     public String dateFormat;
-    private static HashMap<Class, ArrayList<Entity>> entities = null;
+    // Class -> loaded Entities. Published once all files are loaded
+    private static volatile Map<Class<?>, EntityStore> entities = null;
+    // Completes once all files are loaded and relationships resolved
+    private static volatile CompletableFuture<Void> ready = null;
+    // Set on threads loading the files so they are not held back by awaitReady()
+    private static final ThreadLocal<Boolean> loader = ThreadLocal.withInitial(() -> false);
+    // Class -> Variable name -> lower case value -> Entities in the order of the store
+    private static Map<Class<?>, Map<String, Map<String, Set<Entity<?>>>>> indexes = new ConcurrentHashMap<>();
+    private static volatile boolean indexed = false;
+    // Class -> Variable name -> n-gram index for partial match searches
+    private static Map<Class<?>, Map<String, SearchIndex>> searchIndexes = new ConcurrentHashMap<>();
+    // Class -> bitmap index for findAll(Criteria)
+    private static Map<Class<?>, BitmapIndex> bitmapIndexes = new ConcurrentHashMap<>();
+    // Class -> Variable name -> function reading the variable as in toHashMap(). Functions take an Entity of the class
+    private static Map<Class<?>, HashMap<String, ?>> accessors = new ConcurrentHashMap<>();
+    // Class -> Variable names in the order of the bits of dirty
+    private static Map<Class<?>, String[]> attributeNames = new ConcurrentHashMap<>();
     protected ArrayList<String> errors;
-    private Class subClass;
-    private HashMap<String, String> oldData = null;
+    private Class<T> subClass;
+    // Bit i is set once the variable at i of attributeNames is set after the last save. See setDirty()
+    private long dirty = 0;
+    // Values as last saved of the variables with a bit in dirty. Undo record for revertOldData(), null while nothing is dirty
+    private String[] savedValues = null;
     private boolean newRecord = true;
+    // Position in the EntityStore of the class, -1 if not in it
+    private long sequence = -1;
+    // Number of times the record has been saved. For a working copy the version it was checked out at
+    private volatile long version = 0;
+    // Loaded object this is a working copy of, null if not a copy. See checkout()
+    private Entity<T> original = null;
+    // Set if the last save failed because another thread saved the record first
+    private boolean conflict = false;
+    // Values this object is currently indexed under
+    private HashMap<String, String> indexedValues = null;
+    // Values this object is currently in the search indexes under
+    private HashMap<String, String> searchedValues = null;
+    // Values this object is currently in the bitmap index under
+    private HashMap<String, String> bitmapValues = null;
+    // Key this object is currently in the identity map of its EntityStore under
+    private String indexedKey = null;
     public enum Types {
         ENUM, STRING, GENDER, BOOLEAN, INT, DOUBLE, CURRENCY, DATE
     }
@@ -29,12 +69,42 @@ public abstract class Entity<T extends Entity<T>> {
      * Constructor of Entity
      * @param subClass Subclass that initializes this class
      */
-    public Entity(Class subClass) {
+    public Entity(Class<T> subClass) {
         this.subClass = subClass;
         this.errors = new ArrayList<>();
         // Load all data from text files if not loaded. ONE TIME ONLY.
         if (entities == null)
-            loadEntities();
+            startLoading();
+    }
+
+    /**
+     * Start loading all files in the background. ONE TIME ONLY.
+     * @return completes once all Entities are ready
+     */
+    public static synchronized CompletableFuture<Void> startLoading() {
+        if (ready == null)
+            ready = CompletableFuture.runAsync(Entity::loadEntities);
+
+        return ready;
+    }
+
+    /**
+     * Create Entities without loading any file, e.g. in tools that rewrite the files themselves.
+     * Must be called before the first Entity is created. Nothing can be found or saved afterwards
+     */
+    public static synchronized void skipLoading() {
+        if (ready != null)
+            throw new IllegalStateException("Entities are already loading");
+
+        entities = new ConcurrentHashMap<>();
+        ready = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Wait until all files are loaded and relationships resolved
+     */
+    public static void awaitReady() {
+        startLoading().join();
     }
 
     /**
@@ -43,6 +113,38 @@ public abstract class Entity<T extends Entity<T>> {
      */
     public abstract HashMap<String, String> toHashMap();
 
+    /**
+     * Functions reading a single variable without building the whole HashMap.
+     * Values must be the same as in toHashMap(). Fetched once per class
+     * @return HashMap of variable name and function
+     */
+    protected abstract HashMap<String, Function<T, String>> getAccessors();
+
+    /**
+     * Read a single variable as it would appear in toHashMap()
+     * @param var Variable name
+     * @return value of the variable
+     */
+    public String getAttribute(String var) {
+        Function<T, String> accessor = getClassAccessors().get(var);
+        if (accessor == null)
+            return toHashMap().get(var);
+
+        return accessor.apply(subClass.cast(this));
+    }
+
+    @SuppressWarnings("unchecked")
+    private HashMap<String, Function<T, String>> getClassAccessors() {
+        // Only put below, for the class of T
+        HashMap<String, Function<T, String>> classAccessors = (HashMap<String, Function<T, String>>) accessors.get(subClass);
+        if (classAccessors == null) {
+            classAccessors = new HashMap<>(getAccessors());
+            accessors.put(subClass, classAccessors);
+        }
+
+        return classAccessors;
+    }
+
     /**
      * Retrieves Hashmap from FileManager
      * @param guestData String of guestData
@@ -96,7 +198,130 @@ public abstract class Entity<T extends Entity<T>> {
      * @return String array of variable names
      */
     public abstract String[][] getEditableList();
-    public abstract HashMap<String, Enum[]> getEnumList();
+    public abstract HashMap<String, Enum<?>[]> getEnumList();
+
+    /**
+     * Variables that identify a record in the journal of FileManager.
+     * Searches matching all of them find the record in the identity map of its EntityStore
+     * @return String array of variable names
+     */
+    public abstract String[] getKeyAttributes();
+
+    /**
+     * Variables with a secondary index for exact match searches. Override to declare indexes.
+     * Key attributes need no index
+     * @return String array of variable names
+     */
+    protected String[] getIndexedAttributes() {
+        return new String[0];
+    }
+
+    /**
+     * Variables with an n-gram index for partial match searches, e.g. findAll(var, content, false).
+     * Override to declare search indexes
+     * @return String array of variable names
+     */
+    protected String[] getSearchableAttributes() {
+        return new String[0];
+    }
+
+    /**
+     * Variables with few distinct values, e.g. enums and booleans, kept in a bitmap index for findAll(Criteria).
+     * Override to declare the bitmap index
+     * @return String array of variable names
+     */
+    protected String[] getBitmapAttributes() {
+        return new String[0];
+    }
+
+    /**
+     * Variable and values of records that are rarely searched, e.g. {"status", "CLOSED"}.
+     * With Config.mappedRead these records are only loaded when a search may match them
+     * @return variable name followed by its values, empty if all records are loaded at start
+     */
+    protected String[] getArchivedValues() {
+        return new String[0];
+    }
+
+    /**
+     * Fetch related Entities once all files are loaded. Override to resolve relationships at startup
+     */
+    protected void resolve() {
+    }
+
+    /**
+     * Fetch related Entities of many objects of this class at once. Override to look up every related class
+     * in one pass with findEach() instead of one find() per object
+     * @param list objects of this class
+     */
+    protected void resolve(Collection<T> list) {
+        for (T t : list)
+            t.resolve();
+    }
+
+    /**
+     * Fetch related Entities of many objects at once, e.g. before listing them with their Guests and Rooms
+     * @param list objects of one class
+     * @param <E> Entity Class
+     */
+    public static <E extends Entity<E>> void resolveAll(E[] list) {
+        resolveAll(Arrays.asList(list));
+    }
+
+    /**
+     * Fetch related Entities of many objects at once, e.g. before listing them with their Guests and Rooms
+     * @param list objects of one class
+     * @param <E> Entity Class
+     */
+    public static <E extends Entity<E>> void resolveAll(Collection<E> list) {
+        Iterator<E> it = list.iterator();
+        if (it.hasNext())
+            it.next().resolve(list);
+    }
+
+    /**
+     * Fetch related Entities of loaded objects of the class of this object
+     * @param list objects of the class of this object
+     */
+    private void resolveLoaded(Collection<Entity<?>> list) {
+        ArrayList<T> typed = new ArrayList<>();
+        for (Entity<?> e : list)
+            typed.add(subClass.cast(e));
+        resolve(typed);
+    }
+
+    /**
+     * Key of a record made up of the values of getKeyAttributes()
+     * @param data HashMap of a record
+     * @return key of the record
+     */
+    public String getKey(HashMap<String, String> data) {
+        String[] attribs = getKeyAttributes();
+        if (attribs.length == 1)
+            return data.get(attribs[0]);
+
+        StringBuilder key = new StringBuilder();
+        for (String attrib : attribs)
+            key.append(data.get(attrib)).append('\t');
+
+        return key.toString();
+    }
+
+    /**
+     * Key of the record as it was last saved
+     * @return key of the record
+     */
+    String getSavedKey() {
+        return getKey(isNewRecord() ? toHashMap() : getSavedData());
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
 
     public boolean isNewRecord() {
         return newRecord;
@@ -105,7 +330,219 @@ public abstract class Entity<T extends Entity<T>> {
     protected void setNewRecord(boolean newRecord) {
         this.newRecord = newRecord;
         if (!newRecord)
-            oldData = toHashMap();
+            clearDirty();
+    }
+
+    /**
+     * Mark this object as loaded from a file with the values of its record
+     * @param data HashMap of the record
+     */
+    void setLoaded(HashMap<String, String> data) {
+        this.newRecord = false;
+        clearDirty();
+
+        String version = data.get(VERSION);
+        this.version = version == null || version.isEmpty() ? 0 : Long.parseLong(version);
+    }
+
+    /**
+     * Version of the record as last saved. Increases with every save
+     * @return version of the record
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Working copy of this object to be edited, e.g. by a session. Other sessions keep seeing the values
+     * last saved until the copy is saved, and reverting the copy never touches them.
+     * save() and delete() of the copy fail with a conflict if another session saves the object meanwhile
+     * @return copy at the values and version last saved, this object if it is a new record
+     */
+    public T checkout() {
+        Entity<T> shared = getShared();
+        if (shared.isNewRecord())
+            return subClass.cast(shared);
+
+        Entity<T> copy;
+        try {
+            copy = subClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+
+        copy.original = shared;
+        copy.refresh();
+        return subClass.cast(copy);
+    }
+
+    /**
+     * Loaded object other sessions see
+     * @return object this is a working copy of, otherwise this object
+     */
+    private Entity<T> getShared() {
+        return original == null ? this : original;
+    }
+
+    /**
+     * Take the values and version last saved of the loaded object this is a working copy of
+     */
+    private void refresh() {
+        if (original == null)
+            return;
+
+        HashMap<String, String> data = getStore().withLocks(Collections.singletonList(original.getSavedKey()), () -> {
+            version = original.version;
+            return original.getSavedData();
+        });
+
+        // Loaded as a new record so the setters keep no undo record of the values replaced
+        newRecord = true;
+        loadHashMap(data);
+        newRecord = original.newRecord;
+        clearDirty();
+    }
+
+    /**
+     * Check if the last save or delete failed because another thread saved the record first.
+     * Call revertOldData() to load the values saved by the other thread and try again
+     * @return true if there was a conflict
+     */
+    public boolean hasConflict() {
+        return conflict;
+    }
+
+    /**
+     * Compare the version of the record with the version expected. Called with the key locked.
+     * A new record is checked to have a key no other record has, as another session may have saved one meanwhile
+     * @param expected version expected by the caller
+     * @return true if the record is still at the version, false with a conflict otherwise
+     */
+    boolean checkVersion(long expected) {
+        if (isNewRecord()) {
+            if (isKeyFree())
+                return true;
+
+            conflict = true;
+            errors.add(String.format("This %s already exists.", subClass.getSimpleName()));
+            return false;
+        }
+
+        if (getShared().version == expected)
+            return true;
+
+        conflict = true;
+        errors.add(String.format("This %s has been changed by another session. Please try again.", subClass.getSimpleName()));
+        return false;
+    }
+
+    /**
+     * Check that no loaded or archived record has the key of this object
+     * @return true if the key is free
+     */
+    private boolean isKeyFree() {
+        HashMap<String, String> data = toHashMap();
+        String first = getKeyAttributes()[0];
+        loadArchived(first, data.get(first));
+
+        return getStore().get(getKey(data).toLowerCase()).isEmpty();
+    }
+
+    /**
+     * Variable names of the class. Taken from getAccessors() once per class
+     * @return String array of variable names
+     */
+    private String[] getAttributeNames() {
+        String[] names = attributeNames.get(subClass);
+        if (names == null) {
+            names = getClassAccessors().keySet().toArray(new String[0]);
+            if (names.length > Long.SIZE)
+                throw new IllegalStateException(subClass.getSimpleName() + " has more variables than dirty can track");
+            attributeNames.put(subClass, names);
+        }
+
+        return names;
+    }
+
+    /**
+     * Mark a variable as changed since the last save. Called by the setters before the value is changed,
+     * so the value last saved is kept for revertOldData() the first time the variable is set.
+     * A variable read from others, e.g. roomId from roomFloor, is marked by their setters too
+     * @param attrib variable name as in toHashMap()
+     */
+    protected void setDirty(String attrib) {
+        // Everything is written for a new record
+        if (isNewRecord())
+            return;
+
+        String[] names = getAttributeNames();
+        int i = Arrays.asList(names).indexOf(attrib);
+        if (i < 0 || (dirty & 1L << i) != 0)
+            return;
+
+        if (savedValues == null)
+            savedValues = new String[names.length];
+        savedValues[i] = getAttribute(attrib);
+        dirty |= 1L << i;
+    }
+
+    /**
+     * Drop the undo record once the values are saved or reverted
+     */
+    private void clearDirty() {
+        dirty = 0;
+        savedValues = null;
+    }
+
+    /**
+     * Values of the variables as last saved
+     * @return HashMap of variable name and value
+     */
+    HashMap<String, String> getSavedData() {
+        String[] names = getAttributeNames();
+        HashMap<String, String> data = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            String value = (dirty & 1L << i) != 0 ? savedValues[i] : getAttribute(names[i]);
+            if (value != null)
+                data.put(names[i], value);
+        }
+
+        return data;
+    }
+
+    /**
+     * Variables changed since the object was last saved. All variables for a new record
+     * @return String array of variable names
+     */
+    public String[] getChangedAttributes() {
+        HashMap<String, String> changes = getChanges(toHashMap());
+        return changes == null ? new String[0] : changes.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Changed variables of data together with the key variables
+     * @param data HashMap of the current values, e.g. toHashMap()
+     * @return HashMap of variable name and value, null if nothing changed
+     */
+    private HashMap<String, String> getChanges(HashMap<String, String> data) {
+        if (isNewRecord())
+            return data;
+        if (dirty == 0)
+            return null;
+
+        String[] names = getAttributeNames();
+        HashMap<String, String> changes = new HashMap<>();
+        for (int i = 0; i < names.length; i++)
+            if ((dirty & 1L << i) != 0 && !Objects.equals(data.get(names[i]), savedValues[i]))
+                changes.put(names[i], data.get(names[i]));
+
+        if (changes.size() == 0)
+            return null;
+
+        for (String attrib : getKeyAttributes())
+            changes.put(attrib, data.get(attrib));
+
+        return changes;
     }
 
     /**
@@ -116,18 +553,38 @@ public abstract class Entity<T extends Entity<T>> {
         return errors.toArray(new String[errors.size()]);
     }
 
+    /**
+     * Take the errors of an object saved together with this one, e.g. a child that failed to commit
+     * @param other Entity Object
+     */
+    protected void addErrors(Entity<?> other) {
+        for (String error : other.errors)
+            if (!errors.contains(error))
+                errors.add(error);
+        conflict |= other.conflict;
+    }
+
     /**
      * Saves or update the object to the database
+     * Inside Transaction.run() the object is only written when the transaction commits
      * @return true if success, false otherwise
      */
     public boolean save() {
+        conflict = false;
         if (!this.validate())
             return false;
 
+        long expected = version;
+        Transaction tx = Transaction.current();
+        if (tx != null) {
+            tx.add(this, false, expected);
+            return true;
+        }
+
         if (isNewRecord())
-            return createNewRecord();
+            return createNewRecord(expected);
         else
-            return updateRecord();
+            return updateRecord(expected);
     }
 
 
@@ -135,93 +592,463 @@ public abstract class Entity<T extends Entity<T>> {
      * Creates a new object and save to database
      * @return true if success, false otherwise
      */
-    private boolean createNewRecord() {
-        boolean success = writeToFileManager();
-        if (!success)
+    private boolean createNewRecord(long expected) {
+        boolean success = writeToFileManager(expected);
+        if (!success && !conflict)
             System.out.println("Failed to save file!!!");
-        else
-            setNewRecord(false);
         return success;
     }
 
     /**
      * Sends records to filemanager to be written to a file
+     * @param expected version the record is expected to be at
      * @return success or fail to write
      */
-    private boolean writeToFileManager() {
-        FileManager fm = new FileManager(Config.files.get(subClass));
-        ArrayList<Entity> entity = entities.get(subClass);
-        if (isNewRecord()) {
-            try {
-                entity.add(this);
-            } catch (NullPointerException e) {
-                System.out.println("Has the file been defined in Config.java?");
+    private boolean writeToFileManager(long expected) {
+        EntityStore entity = getEntities(subClass);
+        if (entity == null) {
+            System.out.println("Has the file been defined in Config.java?");
+            return false;
+        }
+
+        if (Config.journal)
+            return appendToJournal(toHashMap(), expected);
+
+        return rewriteFile(toHashMap(), expected);
+    }
+
+    /**
+     * Apply the changes of this object and rewrite the file from the loaded objects. Used without a journal.
+     * The key is locked before the file, in the same order as Transaction, so neither waits on the other forever
+     * @param data HashMap of the current values, null to delete the object
+     * @param expected version the record is expected to be at
+     * @return success or fail to write
+     */
+    private boolean rewriteFile(HashMap<String, String> data, long expected) {
+        EntityStore store = getStore();
+        return store.withLocks(Collections.singletonList(getSavedKey()), () -> {
+            synchronized (store) {
+                if (!checkVersion(expected))
+                    return false;
+
+                // Nothing changed since the last save
+                if (data != null && getChanges(data) == null)
+                    return true;
+
+                applyCommit(data);
+                return getFileManager().write(store);
             }
+        });
+    }
+
+    /**
+     * Append the changes of this object to the journal and apply them once they are on disk.
+     * The key of the record stays locked until the change is applied, so no other save of the record passes the version check meanwhile.
+     * Saves of other records are written together
+     * @param data HashMap of the current values, null to delete the object
+     * @param expected version the record is expected to be at
+     * @return success or fail to write
+     */
+    private boolean appendToJournal(HashMap<String, String> data, long expected) {
+        EntityStore store = getStore();
+        FileManager.commits.readLock().lock();
+        try {
+            return store.withLocks(Collections.singletonList(getSavedKey()), () -> {
+                if (!checkVersion(expected))
+                    return false;
+
+                // Nothing changed since the last save
+                LinkedHashMap<String, String> record = getJournalRecord(data);
+                if (record == null)
+                    return true;
+
+                ArrayList<LinkedHashMap<String, String>> records = new ArrayList<>();
+                records.add(record);
+                if (!getFileManager().append(null, records, store).join())
+                    return false;
+
+                applyCommit(data);
+                return true;
+            });
+        } finally {
+            FileManager.commits.readLock().unlock();
         }
+    }
+
+    /**
+     * Journal record of the changes since the last save for a Transaction
+     * @param data HashMap of the current values, null to delete the object
+     * @return journal record, null if there is nothing to write
+     */
+    LinkedHashMap<String, String> getJournalRecord(HashMap<String, String> data) {
+        if (data == null)
+            return isNewRecord() ? null : FileManager.toRecord(FileManager.DELETE, this, getSavedKey(), null);
 
-        return fm.write(entity);
+        HashMap<String, String> changes = getChanges(data);
+        if (changes == null)
+            return null;
+
+        changes = new HashMap<>(changes);
+        changes.put(VERSION, Long.toString(version + 1));
+        return FileManager.toRecord(isNewRecord() ? FileManager.CREATE : FileManager.UPDATE, this, getSavedKey(), changes);
     }
 
     /**
-     * Load all files using FileManager into the variable entities
-     * @return Success of the function.
-     */
-    private boolean loadEntities() {
-        // Initialize for entry
-        entities = new HashMap<>();
-
-        // Loop through the data
-        for (Map.Entry<Class, String> o : Config.files.entrySet()) {
-            // Set up FileManager
-            Class c = o.getKey();
-            FileManager fm = new FileManager(Config.files.get(c));
-
-            // Add to Entity static variable
-            ArrayList entityList;
-            try {
-                entityList = fm.load(c.newInstance());
-            } catch (Exception fe) {
-                entityList = new ArrayList();
+     * Apply a change written by a Transaction to the loaded Entities and indexes.
+     * Changes of a working copy are applied to the loaded object, and the copy moves to the version saved
+     * @param data HashMap of the values saved, null if the object was deleted
+     */
+    void applyCommit(HashMap<String, String> data) {
+        EntityStore store = getStore();
+        Entity<T> shared = getShared();
+        store.withLocks(Collections.singletonList(getSavedKey()), () -> {
+            if (data == null) {
+                store.remove(shared);
+                shared.unindex();
+                return null;
             }
-            entities.put(c, entityList);
+
+            if (shared.isNewRecord())
+                store.add(shared);
+            if (shared != this)
+                shared.loadHashMap(data);
+            shared.newRecord = false;
+            shared.version++;
+            shared.clearDirty();
+            shared.index();
+
+            newRecord = false;
+            version = shared.version;
+            clearDirty();
+            return null;
+        });
+    }
+
+    /**
+     * Loaded Entities of the class of this object
+     * @return EntityStore of the class
+     */
+    EntityStore getStore() {
+        return getEntities(subClass);
+    }
+
+    /**
+     * FileManager of the file of this object
+     * @return FileManager
+     */
+    FileManager getFileManager() {
+        return new FileManager(Config.files.get(subClass));
+    }
+
+    /**
+     * Load all files using FileManager into the variable entities
+     * Files are read and indexed concurrently. Relationships are resolved after all files are in.
+     */
+    private static void loadEntities() {
+        loader.set(true);
+        try {
+            HashMap<Class<?>, EntityStore> loaded = forEachClass(Config.files.keySet(), Entity::loadFile);
+            entities = new ConcurrentHashMap<>(loaded);
+
+            // Indexes of a class only hold its own values
+            forEachClass(loaded.keySet(), c -> {
+                indexes.computeIfAbsent(c, k -> new ConcurrentHashMap<>());
+                for (Entity<?> e : loaded.get(c))
+                    e.index();
+                return null;
+            });
+            indexed = true;
+
+            // Relationships may refer to any other class.
+            // Searches may add archived records to the lists meanwhile, so work on copies
+            HashMap<Class<?>, ArrayList<Entity<?>>> copies = new HashMap<>();
+            for (Map.Entry<Class<?>, EntityStore> o : loaded.entrySet())
+                copies.put(o.getKey(), new ArrayList<>(o.getValue()));
+
+            forEachClass(loaded.keySet(), c -> {
+                if (!copies.get(c).isEmpty())
+                    copies.get(c).get(0).resolveLoaded(copies.get(c));
+                return null;
+            });
+        } finally {
+            loader.set(false);
         }
+    }
 
-        // Set all objects in false to be false
-        for (Object o : entities.keySet()) {
-            for (Entity e : entities.get(o))
-                e.setNewRecord(false);
+    /**
+     * Run a task for every class concurrently and wait for all of them
+     * @param classes Entity Classes
+     * @param task task to be run for a class
+     * @param <R> result of the task
+     * @return Class -> result of the task
+     */
+    private static <R> HashMap<Class<?>, R> forEachClass(Collection<Class<?>> classes, Function<Class<?>, R> task) {
+        HashMap<Class<?>, CompletableFuture<R>> tasks = new HashMap<>();
+        for (Class<?> c : classes) {
+            tasks.put(c, CompletableFuture.supplyAsync(() -> {
+                loader.set(true);
+                try {
+                    return task.apply(c);
+                } finally {
+                    loader.set(false);
+                }
+            }));
         }
 
-        return true;
+        HashMap<Class<?>, R> results = new HashMap<>();
+        for (Map.Entry<Class<?>, CompletableFuture<R>> o : tasks.entrySet())
+            results.put(o.getKey(), o.getValue().join());
+
+        return results;
+    }
+
+    /**
+     * Load a single file
+     * @param c Entity Class
+     * @return EntityStore of the Entities in the file
+     */
+    private static EntityStore loadFile(Class<?> c) {
+        // Set up FileManager
+        FileManager fm = new FileManager(Config.files.get(c));
+
+        ArrayList<Entity<?>> entityList;
+        try {
+            entityList = fm.load((Entity<?>) c.getDeclaredConstructor().newInstance());
+        } catch (Exception fe) {
+            entityList = new ArrayList<>();
+        }
+
+        return new EntityStore(entityList);
     }
 
     /**
      * Fetch all Entities of a particular Class
      * @param T Entity Class to be extracted
-     * @return ArrayList of Entities
+     * @return EntityStore of the class
      */
-    private ArrayList getEntities(Class T) {
+    private EntityStore getEntities(Class<?> T) {
+        if ((ready == null || !ready.isDone()) && !loader.get())
+            awaitReady();
+
         return entities.get(T);
     }
 
+    /**
+     * Add or move this object to the index entries of its current values
+     */
+    private void index() {
+        identify();
+        search();
+        bitmap();
+
+        String[] attribs = getIndexedAttributes();
+        if (attribs.length == 0)
+            return;
+
+        Map<String, Map<String, Set<Entity<?>>>> classIndex = indexes.computeIfAbsent(subClass, k -> new ConcurrentHashMap<>());
+        if (indexedValues == null)
+            indexedValues = new HashMap<>();
+
+        for (String attrib : attribs) {
+            String value = getAttribute(attrib);
+            value = value == null ? "" : value.toLowerCase();
+            String oldValue = indexedValues.get(attrib);
+            if (value.equals(oldValue))
+                continue;
+
+            Map<String, Set<Entity<?>>> index = classIndex.computeIfAbsent(attrib, k -> new ConcurrentHashMap<>());
+            if (oldValue != null)
+                index.get(oldValue).remove(this);
+            index.computeIfAbsent(value, k -> new ConcurrentSkipListSet<>(Comparator.comparingLong(Entity::getSequence))).add(this);
+            indexedValues.put(attrib, value);
+        }
+    }
+
+    /**
+     * Add or move this object to the identity map under the key it was last saved with
+     */
+    private void identify() {
+        String key = String.valueOf(getSavedKey()).toLowerCase();
+        if (key.equals(indexedKey))
+            return;
+
+        EntityStore store = getEntities(subClass);
+        if (indexedKey != null)
+            store.removeKey(indexedKey, this);
+        store.putKey(key, this);
+        indexedKey = key;
+    }
+
+    /**
+     * Add or move this object to the search indexes of its current values
+     */
+    private void search() {
+        String[] attribs = getSearchableAttributes();
+        if (attribs.length == 0)
+            return;
+
+        Map<String, SearchIndex> classIndex = searchIndexes.computeIfAbsent(subClass, k -> new ConcurrentHashMap<>());
+        if (searchedValues == null)
+            searchedValues = new HashMap<>();
+
+        for (String attrib : attribs) {
+            String value = getAttribute(attrib);
+            value = value == null ? "" : value.toLowerCase();
+            String oldValue = searchedValues.get(attrib);
+            if (value.equals(oldValue))
+                continue;
+
+            SearchIndex index = classIndex.computeIfAbsent(attrib, k -> new SearchIndex());
+            if (oldValue != null)
+                index.remove(this, oldValue);
+            index.add(this, value);
+            searchedValues.put(attrib, value);
+        }
+    }
+
+    /**
+     * Add or move this object to the bitmaps of its current values
+     */
+    private void bitmap() {
+        String[] attribs = getBitmapAttributes();
+        if (attribs.length == 0)
+            return;
+
+        HashMap<String, String> values = new HashMap<>();
+        for (String attrib : attribs) {
+            String value = getAttribute(attrib);
+            values.put(attrib, value == null ? "" : value.toLowerCase());
+        }
+        if (values.equals(bitmapValues))
+            return;
+
+        bitmapIndexes.computeIfAbsent(subClass, k -> new BitmapIndex(attribs)).put(this, bitmapValues, values);
+        bitmapValues = values;
+    }
+
+    /**
+     * Remove this object from all index entries
+     */
+    private void unindex() {
+        if (indexedKey != null) {
+            getEntities(subClass).removeKey(indexedKey, this);
+            indexedKey = null;
+        }
+
+        if (searchedValues != null) {
+            Map<String, SearchIndex> classIndex = searchIndexes.get(subClass);
+            for (Map.Entry<String, String> o : searchedValues.entrySet())
+                classIndex.get(o.getKey()).remove(this, o.getValue());
+            searchedValues = null;
+        }
+
+        if (bitmapValues != null) {
+            bitmapIndexes.get(subClass).remove(this, bitmapValues);
+            bitmapValues = null;
+        }
+
+        if (indexedValues == null)
+            return;
+
+        Map<String, Map<String, Set<Entity<?>>>> classIndex = indexes.get(subClass);
+        for (Map.Entry<String, String> o : indexedValues.entrySet())
+            classIndex.get(o.getKey()).get(o.getValue()).remove(this);
+
+        indexedValues = null;
+    }
+
+    /**
+     * Fetch candidates for an exact match search from the identity map if args hold the whole key,
+     * otherwise from the first indexed variable in args
+     * @param args Variable args of variable name and content
+     * @return Collection of Entities, null if no variable is indexed
+     */
+    private Collection<T> getIndexed(String... args) {
+        if (!indexed)
+            return null;
+
+        String key = getKey(args);
+        if (key != null)
+            return typed(getEntities(subClass).get(key));
+
+        Map<String, Map<String, Set<Entity<?>>>> classIndex = indexes.get(subClass);
+        if (classIndex == null)
+            return null;
+
+        for (int i = 0; i < args.length; i += 2) {
+            Map<String, Set<Entity<?>>> index = classIndex.get(args[i]);
+            if (index == null)
+                continue;
+            if (args[i + 1] == null)
+                return Collections.emptyList();
+
+            Set<Entity<?>> result = index.get(args[i + 1].toLowerCase());
+            return result == null ? Collections.emptyList() : typed(result);
+        }
+
+        return null;
+    }
+
+    /**
+     * Array of the class of this object
+     * @param size length of the array
+     * @return Object Array
+     */
+    @SuppressWarnings("unchecked")
+    private T[] newArray(int size) {
+        return (T[]) Array.newInstance(subClass, size);
+    }
+
+    /**
+     * View a collection of the store or an index of the class of this object as objects of the class
+     * @param list Entities of the class of this object
+     * @return list
+     */
+    @SuppressWarnings("unchecked")
+    private Collection<T> typed(Collection<? extends Entity<?>> list) {
+        // Stores and indexes are kept per class, so they only hold objects of their own class
+        return (Collection<T>) list;
+    }
+
+    /**
+     * Key made up of the values of all key attributes in args
+     * @param args Variable args of variable name and content
+     * @return lower case key, null if a key attribute is not in args
+     */
+    private String getKey(String... args) {
+        HashMap<String, String> data = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2)
+            data.put(args[i], args[i + 1]);
+
+        for (String attrib : getKeyAttributes())
+            if (data.get(attrib) == null)
+                return null;
+
+        return getKey(data).toLowerCase();
+    }
 
-    private boolean updateRecord() {
-        return writeToFileManager();
+    private boolean updateRecord(long expected) {
+        return writeToFileManager(expected);
     }
 
     /**
      * Delete this Object from the Database
+     * Inside Transaction.run() the object is only removed when the transaction commits
      * @return true if success, false otherwise
      */
     public boolean delete() {
-        // Call FileManager to save and add to Array
-        FileManager fm = new FileManager(Config.files.get(subClass));
-        ArrayList<Entity> entity = entities.get(subClass);
-        entity.remove(this);
+        conflict = false;
+        long expected = version;
+        Transaction tx = Transaction.current();
+        if (tx != null) {
+            tx.add(this, true, expected);
+            return true;
+        }
 
-        boolean success = fm.write(entity);
+        // Call FileManager to save and remove from Array
+        boolean success = Config.journal ? appendToJournal(null, expected) : rewriteFile(null, expected);
 
-        if (!success)
+        if (!success && !conflict)
             System.out.println("Failed to save file!!!");
 
         return success;
@@ -262,6 +1089,232 @@ public abstract class Entity<T extends Entity<T>> {
 
 
 
+    /**
+     * Find the objects of many values of a variable at once, e.g. the Guests of a list of Reservations.
+     * Keys and indexed variables are looked up once per value, others are matched in a single pass over all objects
+     * @param var Variable name
+     * @param values values to search for
+     * @return value -> first object with the value. Values not found are left out
+     */
+    public HashMap<String, T> findEach(String var, Collection<String> values) {
+        HashMap<String, T> results = new HashMap<>();
+
+        // lower case value -> values searched for
+        HashMap<String, ArrayList<String>> wanted = new HashMap<>();
+        for (String value : values)
+            if (value != null)
+                wanted.computeIfAbsent(value.toLowerCase(), k -> new ArrayList<>()).add(value);
+        if (wanted.size() == 0)
+            return results;
+
+        for (String value : wanted.keySet())
+            loadArchived(var, value);
+
+        // The identity map or an index is looked up once per value
+        if (getIndexed(var, "") != null) {
+            for (Map.Entry<String, ArrayList<String>> o : wanted.entrySet()) {
+                Iterator<T> it = getIndexed(var, o.getKey()).iterator();
+                if (!it.hasNext())
+                    continue;
+
+                T t = it.next();
+                for (String value : o.getValue())
+                    results.put(value, t);
+            }
+            return results;
+        }
+
+        for (T t : typed(getEntities(subClass))) {
+            String test = t.getAttribute(var);
+            if (test == null)
+                continue;
+
+            ArrayList<String> found = wanted.remove(test.toLowerCase());
+            if (found == null)
+                continue;
+
+            for (String value : found)
+                results.put(value, t);
+            if (wanted.size() == 0)
+                break;
+        }
+
+        return results;
+    }
+
+    /**
+     * Find every object that refers to a parent by its key, e.g. all Reservations of a Guest.
+     * The index of var is kept up to date on every save, so it is read as a reverse index of the relationship
+     * and the cost only grows with the number of children, not with the size of the file
+     * @param var indexed variable holding the key of the parent
+     * @param key key of the parent
+     * @return Object Array in the order of the store, empty if not found
+     */
+    public T[] findChildren(String var, String key) {
+        T[] tArr = newArray(0);
+        if (key == null)
+            return tArr;
+
+        loadArchived(var, key);
+        Collection<T> children = getIndexed(var, key);
+        if (children == null)
+            return findAll(var, key);
+
+        return children.toArray(tArr);
+    }
+
+    /**
+     * Start a search of this class, e.g. new Room().query().is("roomType", "DELUXE").is("status", "VACANT").limit(5).findAll()
+     * @return Query matching every object
+     */
+    public Query<T> query() {
+        return new Query<>(subClass.cast(this));
+    }
+
+    /**
+     * Find all objects matching Criteria, e.g. Criteria.is("bedType", "DOUBLE_BED").and(Criteria.is("wifiEnabled", "true"))
+     * @param criteria Criteria to be matched
+     * @return Object Array in the order of the store, empty if not found
+     */
+    public T[] findAll(Criteria criteria) {
+        return findAll(criteria, -1);
+    }
+
+    /**
+     * Find objects matching Criteria with limited results.
+     * The search starts from the candidates of the most selective index (see plan()). The Criteria are compiled once
+     * and checked against every candidate in a single pass, which stops as soon as enough results are found
+     * @param criteria Criteria to be matched
+     * @param results Number of objects to be returned. -1 for all results to be returned
+     * @return Object Array in the order of the store, empty if not found
+     */
+    public T[] findAll(Criteria criteria, int results) {
+        // Reads do not lock. Writes of other threads may or may not be seen.
+        // If an exact match has to hold, only archived records with its value are needed
+        ArrayList<Criteria> terms = criteria.getTerms();
+        Criteria exact = null;
+        for (Criteria term : terms)
+            if (exact == null && term.getOp() == Criteria.Op.IS)
+                exact = term;
+        if (exact != null)
+            loadArchived(exact.getVar(), exact.getValue());
+        else
+            loadArchived(null, null);
+
+        Collection<T> candidates = plan(terms);
+        if (candidates == null)
+            candidates = typed(getEntities(subClass));
+
+        Predicate<T> predicate = compile(criteria);
+        ArrayList<T> resultList = new ArrayList<>();
+        for (T t : candidates) {
+            if (!predicate.test(t))
+                continue;
+
+            resultList.add(t);
+            // Break if sufficient results are found
+            if (resultList.size() == results)
+                break;
+        }
+
+        T[] tArr = newArray(resultList.size());
+        return resultList.toArray(tArr);
+    }
+
+    /**
+     * Pick the smallest set of candidates for Criteria that all have to match. In order of preference
+     * the identity map if the whole key is given, otherwise the smallest of the bitmaps of all variables in the
+     * bitmap index, the index of an exact match and the search index of a partial match, otherwise all objects.
+     * Candidates still have to be compared with the Criteria
+     * @param terms Criteria that all have to match
+     * @return Collection of Entities in the order of the store, null if all objects have to be compared
+     */
+    private Collection<T> plan(ArrayList<Criteria> terms) {
+        if (!indexed)
+            return null;
+
+        HashMap<String, String> data = new HashMap<>();
+        for (Criteria term : terms)
+            if (term.getOp() == Criteria.Op.IS)
+                data.putIfAbsent(term.getVar(), term.getValue());
+
+        boolean key = true;
+        for (String attrib : getKeyAttributes())
+            key &= data.get(attrib) != null;
+        if (key)
+            return typed(getEntities(subClass).get(getKey(data).toLowerCase()));
+
+        Collection<T> results = null;
+        BitmapIndex bitmap = bitmapIndexes.get(subClass);
+        if (bitmap != null) {
+            Criteria covered = Criteria.all();
+            for (Criteria term : terms)
+                if (bitmap.covers(term))
+                    covered = covered.and(term);
+            if (covered.getOp() != Criteria.Op.ALL)
+                results = typed(getEntities(subClass).getAll(bitmap.select(covered)));
+        }
+
+        Map<String, Map<String, Set<Entity<?>>>> classIndex = indexes.get(subClass);
+        Map<String, SearchIndex> classSearchIndex = searchIndexes.get(subClass);
+        for (Criteria term : terms) {
+            Collection<T> candidates = null;
+            if (term.getOp() == Criteria.Op.IS && classIndex != null && classIndex.get(term.getVar()) != null) {
+                Set<Entity<?>> found = classIndex.get(term.getVar()).get(term.getValue());
+                if (found == null)
+                    return Collections.emptyList();
+                candidates = typed(found);
+            } else if (term.getOp() == Criteria.Op.CONTAINS && classSearchIndex != null && classSearchIndex.get(term.getVar()) != null) {
+                candidates = typed(classSearchIndex.get(term.getVar()).candidates(term.getValue()));
+            }
+
+            if (candidates != null && (results == null || SearchIndex.isSmaller(candidates, results)))
+                results = candidates;
+        }
+
+        return results;
+    }
+
+    /**
+     * Compile Criteria into a single predicate. Variables are read through the accessors of this class,
+     * which are looked up once instead of once per object
+     * @param criteria Criteria to be compiled
+     * @return predicate true for every object matching the Criteria
+     */
+    public Predicate<T> compile(Criteria criteria) {
+        Criteria[] children = criteria.getChildren();
+        String value = criteria.getValue();
+        switch (criteria.getOp()) {
+            case IS:
+            case CONTAINS:
+                Function<T, String> accessor = getClassAccessors().get(criteria.getVar());
+                Function<T, String> reader = accessor != null ? accessor : t -> t.toHashMap().get(criteria.getVar());
+                if (criteria.getOp() == Criteria.Op.CONTAINS)
+                    return t -> {
+                        String test = reader.apply(t);
+                        return test != null && containsIgnoreCase(test, value);
+                    };
+                return t -> {
+                    String test = reader.apply(t);
+                    return test == null ? value.isEmpty() : test.equalsIgnoreCase(value);
+                };
+            case AND:
+                Predicate<T> and = compile(children[0]);
+                for (int i = 1; i < children.length; i++)
+                    and = and.and(compile(children[i]));
+                return and;
+            case OR:
+                Predicate<T> or = compile(children[0]);
+                for (int i = 1; i < children.length; i++)
+                    or = or.or(compile(children[i]));
+                return or;
+            case NOT:
+                return compile(children[0]).negate();
+            default:
+                return t -> true;
+        }
+    }
+
     /**
      * Find a Array of objects
      * @param var Variable name
@@ -307,41 +1360,56 @@ public abstract class Entity<T extends Entity<T>> {
             return null;
         }
 
-        // Get Objects of Entities and create a resultList
-        ArrayList<T> resultList = getEntities(subClass);
-        ArrayList<T> bufferList = new ArrayList<>();
-
-        // Loop through all records to find objects that matches
+        // Every pair of variable and content has to match
+        Criteria criteria = Criteria.all();
         for (int i = 0; i < args.length; i += 2) {
             String var = args[i];
-            String content = args[i + 1].toLowerCase();
+            String content = args[i + 1];
+            if (content == null)
+                criteria = criteria.and(Criteria.in(var));
+            else
+                criteria = criteria.and(matchAll ? Criteria.is(var, content) : Criteria.contains(var, content));
+        }
 
-            for (T t : resultList) {
-                // Condition checking to determine whether to add to resultList
-                String test = t.toHashMap().get(var).toLowerCase();
+        return findAll(criteria, results);
+    }
 
-                if (test.equals(content) || (!matchAll && test.indexOf(content) != -1))
-                    bufferList.add(t);
+    /**
+     * Add archived records of the file to the loaded Entities
+     * @param var Variable name, null to load all archived records
+     * @param content content of the variable
+     */
+    private void loadArchived(String var, String content) {
+        if (!Config.mappedRead)
+            return;
 
-                // Break if sufficient results are found
-                if (resultList.size() == results && results != -1)
-                    break;
+        FileManager fm = new FileManager(Config.files.get(subClass));
+        EntityStore store = getEntities(subClass);
+        ArrayList<T> loaded;
+        // Checkpoints lock the store so a record is never in both the archive and the store of the snapshot
+        synchronized (store) {
+            loaded = fm.loadArchived(subClass.cast(this), var, content);
+            for (Entity<T> e : loaded) {
+                store.add(e);
+                e.index();
             }
-
-            // change resultList to bufferList and reset bufferList
-            resultList = bufferList;
-            bufferList = new ArrayList<>();
         }
 
-        // Nothing was found
-        if (resultList.size() == 0)
-            return (T[]) Array.newInstance(subClass, 0);
+        resolveAll(loaded);
+    }
 
-        // Convert ArrayList to Array
-        T[] tArr  = (T[]) Array.newInstance(subClass, resultList.size());
-        tArr = resultList.toArray(tArr);
+    /**
+     * Case insensitive String.contains() without creating lower case copies
+     * @param text text to search in
+     * @param content content to search for
+     * @return true if found
+     */
+    private static boolean containsIgnoreCase(String text, String content) {
+        for (int i = 0; i <= text.length() - content.length(); i++)
+            if (text.regionMatches(true, i, content, 0, content.length()))
+                return true;
 
-        return tArr;
+        return false;
     }
 
     /**
@@ -351,20 +1419,24 @@ public abstract class Entity<T extends Entity<T>> {
      * @return true if unique
      */
     public boolean checkIdUnique(String var, String text) {
-        Entity entityList[] = findAll(var, text, true);
-        for (Entity e : entityList)
-            if (!e.equals(this))
+        T entityList[] = findAll(var, text, true);
+        for (T e : entityList)
+            if (e != getShared())
                 return false;
 
         return true;
     }
 
     /**
-     * Revert data back to saved state in file
+     * Revert data back to saved state in file. A working copy takes the values saved meanwhile by other sessions
      */
     public void revertOldData() {
-        if (!isNewRecord())
-            loadHashMap(oldData);
+        if (original != null)
+            refresh();
+        else if (!isNewRecord()) {
+            loadHashMap(getSavedData());
+            clearDirty();
+        }
     }
 
 }
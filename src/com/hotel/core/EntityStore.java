@@ -0,0 +1,204 @@
+package com.hotel.core;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Loaded Entities of a single class
+ * Entities are kept in the order they were loaded or created. Reads iterate without locking and see a
+ * weakly consistent view. Writes lock the stripe of the key of the record, so only writes to the same key wait for each other.
+ * An identity map finds Entities by key (Entity.getKeyAttributes()) without a search
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+class EntityStore extends AbstractCollection<Entity<?>> {
+    private static final int STRIPES = 64;
+
+    // Order of insertion -> Entity<?>
+    private final ConcurrentSkipListMap<Long, Entity<?>> entities = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Object[] stripes = new Object[STRIPES];
+    // Lower case key -> Entities with the key in the order of the store. More than one only if records share a key
+    private final ConcurrentHashMap<String, Entity<?>[]> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of EntityStore
+     * @param loaded Entities in the order of the file
+     */
+    EntityStore(Collection<? extends Entity<?>> loaded) {
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Object();
+
+        for (Entity<?> e : loaded)
+            add(e);
+    }
+
+    /**
+     * Add an Entity<?> after all others
+     * @param e Entity<?> Object
+     * @return true
+     */
+    @Override
+    public boolean add(Entity<?> e) {
+        e.setSequence(sequence.getAndIncrement());
+        entities.put(e.getSequence(), e);
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Remove an Entity<?>
+     * @param o Entity<?> Object
+     * @return true if it was in the store
+     */
+    @Override
+    public boolean remove(Object o) {
+        Entity<?> e = (Entity<?>) o;
+        if (!entities.remove(e.getSequence(), e))
+            return false;
+
+        size.decrementAndGet();
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Entity<?> && entities.get(((Entity<?>) o).getSequence()) == o;
+    }
+
+    @Override
+    public Iterator<Entity<?>> iterator() {
+        return entities.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Entity<?> at a sequence
+     * @param sequence sequence of the Entity<?>
+     * @return Entity<?> Object, null if not in the store
+     */
+    Entity<?> getAt(long sequence) {
+        return entities.get(sequence);
+    }
+
+    /**
+     * Entities at the sequences set in a bitmap. The Collection is a view, reading the store while iterating
+     * @param sequences bits set at the sequence of each Entity<?>
+     * @return Entities in the order of the store. Entities no longer in the store are skipped
+     */
+    Collection<Entity<?>> getAll(BitSet sequences) {
+        return new AbstractCollection<Entity<?>>() {
+            @Override
+            public Iterator<Entity<?>> iterator() {
+                return new Iterator<Entity<?>>() {
+                    private int bit = -1;
+                    private Entity<?> next = advance();
+
+                    private Entity<?> advance() {
+                        Entity<?> e = null;
+                        while (e == null && (bit = sequences.nextSetBit(bit + 1)) >= 0)
+                            e = getAt(bit);
+                        return e;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entity<?> next() {
+                        if (next == null)
+                            throw new NoSuchElementException();
+                        Entity<?> e = next;
+                        next = advance();
+                        return e;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return sequences.cardinality();
+            }
+        };
+    }
+
+    /**
+     * Entities with a key
+     * @param key lower case key
+     * @return Entities in the order of the store, empty if none
+     */
+    Collection<Entity<?>> get(String key) {
+        Entity<?>[] found = keys.get(key);
+        return found == null ? Collections.emptyList() : Arrays.asList(found);
+    }
+
+    /**
+     * Add an Entity<?> to the identity map
+     * @param key lower case key
+     * @param e Entity<?> Object
+     */
+    void putKey(String key, Entity<?> e) {
+        keys.compute(key, (k, found) -> {
+            if (found == null)
+                return new Entity<?>[] {e};
+
+            ArrayList<Entity<?>> list = new ArrayList<>(Arrays.asList(found));
+            list.add(e);
+            list.sort(Comparator.comparingLong(f -> f.getSequence()));
+            return list.toArray(new Entity<?>[list.size()]);
+        });
+    }
+
+    /**
+     * Remove an Entity<?> from the identity map
+     * @param key lower case key it was added under
+     * @param e Entity<?> Object
+     */
+    void removeKey(String key, Entity<?> e) {
+        keys.computeIfPresent(key, (k, found) -> {
+            ArrayList<Entity<?>> list = new ArrayList<>(Arrays.asList(found));
+            list.remove(e);
+            return list.size() == 0 ? null : list.toArray(new Entity<?>[list.size()]);
+        });
+    }
+
+    /**
+     * Run work while holding the locks of keys. Stripes are locked in ascending order so writers never deadlock
+     * @param keys keys of the records written
+     * @param work write to be done
+     * @param <R> result of work
+     * @return result of work
+     */
+    <R> R withLocks(Collection<String> keys, Supplier<R> work) {
+        TreeSet<Integer> locks = new TreeSet<>();
+        for (String key : keys)
+            locks.add(stripe(key));
+
+        return withLocks(locks.iterator(), work);
+    }
+
+    private <R> R withLocks(Iterator<Integer> locks, Supplier<R> work) {
+        if (!locks.hasNext())
+            return work.get();
+
+        synchronized (stripes[locks.next()]) {
+            return withLocks(locks, work);
+        }
+    }
+
+    private static int stripe(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -1,82 +1,219 @@
 package com.hotel.core;
 
+import com.hotel.Config;
+
 import java.io.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 /**
  * Handles writing of Arrays into Files
  * Writes an Array of HashMap into a file
+ * Changes can be appended to a journal (filename.log) which is folded into the file by a background checkpoint
+ * Files are stored as text or, if Config.binary is set, in the binary format of BinaryFile (name.bin)
+ * With Config.mappedRead, text files are memory mapped and archived records are only loaded when searched for
+ * Records of a Transaction are tagged with its id and skipped unless the id is in Config.transactionLog
+ * Journal writes of all threads are collected by a group commit writer and forced to disk together
  * @author  Tan Jun Xiang
  * @version 1.0
  */
 public class FileManager {
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    // Reserved keys of a journal record
+    private static final String OP = "@op";
+    private static final String CLASS = "@class";
+    private static final String KEY = "@key";
+    private static final String TX = "@tx";
+    // Length and checksum of the file a checkpoint folded every record before it into
+    private static final String MARK = "@checkpoint";
+    // Prefixes of records touched by the journal
+    private static final String CHECKPOINT = "=";
+    private static final String CREATED = "+";
+
+    // Number of journal records not yet folded into the file
+    private static final HashMap<String, Integer> pending = new HashMap<>();
+    private static ExecutorService checkpointer = null;
+    // File -> records not loaded yet
+    private static final HashMap<String, MappedFile> archives = new HashMap<>();
+    // Held by saves and Transactions until their records are written and applied, and by checkpoints exclusively
+    static final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+    // Ids in the transaction log, null until read
+    private static HashSet<String> committed = null;
+    // Files whose journal holds records of Transactions
+    private static final HashSet<String> transactional = new HashSet<>();
+    // Journal writes waiting for the group commit writer
+    private static final LinkedBlockingQueue<PendingWrite> writes = new LinkedBlockingQueue<>();
+    private static Thread writer = null;
 
     private String filename;
+    private boolean binary;
 
     /**
      * Constructor of FileManager
      * @param filename File to be written to
      */
     public FileManager(String filename) {
+        this(filename, Config.binary);
+    }
+
+    /**
+     * Constructor of FileManager
+     * @param filename File to be written to
+     * @param binary true to store the file in the binary format
+     */
+    public FileManager(String filename, boolean binary) {
         this.filename = filename;
+        this.binary = binary;
+    }
+
+    /**
+     * Read a file in the format of this FileManager
+     * @param filename File to be read
+     * @param consumer receives each record. The HashMap is reused for the next record.
+     * @return Success of the function
+     */
+    private boolean readFile(String filename, Consumer<HashMap<String, String>> consumer) {
+        if (binary)
+            return BinaryFile.read(filename, consumer);
+
+        return readText(filename, consumer);
+    }
+
+    /**
+     * Write a file in the format of this FileManager
+     * @param filename File to be written to
+     * @param data ArrayList of HashMap objects
+     * @return Success of the function
+     */
+    private boolean writeFile(String filename, ArrayList<HashMap<String, String>> data) {
+        if (binary)
+            return BinaryFile.write(filename, data);
+
+        return writeText(filename, data);
     }
 
     /**
-     * Loads the file and converted into an Array of HashMap objects
-     * @return ArrayList of HashMap.
+     * Reads the file record by record. Each record is handed to consumer as soon as it is complete.
+     * Lines are split on the first tab without regular expressions. The HashMap is reused for the next record.
+     * @param filename File to be read
+     * @param consumer receives each record
+     * @return Success of the function
      */
-    private ArrayList<HashMap<String, String>> loadFile()
+    private boolean readText(String filename, Consumer<HashMap<String, String>> consumer)
     {
         try {
             File f = new File(filename);
             if (!f.exists())
                 f.createNewFile();
 
-            // Open the File for reading
-            Scanner s = new Scanner(f);
-
+            Reader in = new InputStreamReader(new FileInputStream(f));
+            char[] buf = new char[8192];
+            int start = 0, pos = 0, end = 0;
+            boolean eof = false;
+            HashMap<String, String> record = new HashMap<>();
 
-            // Create an ArrayList to store the HashMap & HashMap to be a temporary buffer
-            ArrayList<HashMap<String, String>> data = new ArrayList<>();
-            HashMap<String, String> hashMap = new HashMap<>();
+            while (true) {
+                // Look for the end of the current line
+                while (pos < end && buf[pos] != '\n')
+                    pos++;
 
-            // Loops to file EOL
-            while (s.hasNextLine())
-            {
-                String line = s.nextLine();
+                if (pos == end && !eof) {
+                    // Keep the partial line and read more
+                    if (start > 0) {
+                        System.arraycopy(buf, start, buf, 0, end - start);
+                        pos -= start;
+                        end -= start;
+                        start = 0;
+                    }
+                    if (end == buf.length)
+                        buf = Arrays.copyOf(buf, buf.length * 2);
 
-                // Detection for the next Object
-                if (line.length() == 0) {
-                    data.add(hashMap);
-                    hashMap = new HashMap<>();
+                    int n = in.read(buf, end, buf.length - end);
+                    if (n == -1)
+                        eof = true;
+                    else
+                        end += n;
                     continue;
                 }
 
-                String arr[] = line.trim().split("\t", 2);
-                hashMap.put(arr[0], arr.length == 1 ? "" : arr[1]);
+                parseLine(buf, start, pos, record, consumer);
+                if (pos == end)
+                    break;
+                start = ++pos;
             }
-            if (hashMap.keySet().size() != 0)
-                data.add(hashMap);
 
-            s.close();
+            if (record.size() != 0)
+                consumer.accept(record);
 
-            return data;
-        } catch (Exception e) {
+            in.close();
+            return true;
+        } catch (IOException e) {
             System.out.printf("File is invalid: %s\n", filename);
         }
 
-        return null;
+        return false;
+    }
+
+    /**
+     * Adds a line of key and value separated by a tab to record. An empty line ends the record.
+     * @param buf characters read
+     * @param start start of the line
+     * @param end end of the line, exclusive
+     * @param record record being read
+     * @param consumer receives the record when it ends
+     */
+    private void parseLine(char[] buf, int start, int end, HashMap<String, String> record, Consumer<HashMap<String, String>> consumer) {
+        if (end > start && buf[end - 1] == '\r')
+            end--;
+
+        // Detection for the next Object
+        if (end == start) {
+            if (record.size() != 0)
+                consumer.accept(record);
+            record.clear();
+            return;
+        }
+
+        // Trim the line
+        while (start < end && buf[start] <= ' ')
+            start++;
+        while (end > start && buf[end - 1] <= ' ')
+            end--;
+
+        int tab = start;
+        while (tab < end && buf[tab] != '\t')
+            tab++;
+
+        String key = new String(buf, start, tab - start);
+        record.put(key, tab >= end ? "" : new String(buf, tab + 1, end - tab - 1));
     }
 
 
     /**
      * Write ArrayList of HashMap objects to a File
+     * @param filename File to be written to
      * @param data ArrayList of HashMap objects
      * @return Success of the function
      */
-    private boolean writeFile(ArrayList<HashMap<String, String>> data)
+    private boolean writeText(String filename, ArrayList<HashMap<String, String>> data)
     {
         try {
             PrintWriter out = new PrintWriter(new FileWriter(new File(filename)));
@@ -84,14 +221,7 @@ public class FileManager {
                 if (i > 0)
                     out.print("\n\n");
 
-                HashMap<String, String> hashMap = data.get(i);
-                String keys[] = hashMap.keySet().toArray(new String[hashMap.size()]);
-                String result = "";
-
-                for (String key : keys)
-                    result += String.format("%s\t%s\n", key.toString(), hashMap.get(key));
-
-                out.print(result.trim());
+                out.print(formatRecord(data.get(i)).trim());
             }
 
             out.close();
@@ -103,9 +233,23 @@ public class FileManager {
         return false;
     }
 
+    /**
+     * Format a HashMap into lines of key and value separated by a tab
+     * @param hashMap HashMap of a single record
+     * @return formatted record
+     */
+    private String formatRecord(HashMap<String, String> hashMap) {
+        StringBuilder result = new StringBuilder();
+        for (String key : hashMap.keySet())
+            result.append(key).append('\t').append(hashMap.get(key)).append('\n');
+
+        return result.toString();
+    }
+
 
     /**
      * Convert a HashMap into an Object
+     * Records are converted while the file is read. Journal records of the file are applied on the way.
      * @param t takes in a object e.g. new Guest()
      * @param <T> class to be processed.
      * @return ArrayList with object casting
@@ -113,13 +257,14 @@ public class FileManager {
     public <T> ArrayList<T> load(T t)
     {
         try {
-            ArrayList<HashMap<String, String>> hashMapList = loadFile();
             ArrayList<T> entityList = new ArrayList<>();
+            boolean archive = Config.mappedRead && !binary;
+            int records = readRecords((Entity<?>) t, archive, record -> entityList.add(newEntity(t, record)));
+            if (records < 0)
+                return null;
 
-            for (int i = 0; i < hashMapList.size(); i++) {
-                Entity g = (Entity) t.getClass().newInstance();
-                g.loadHashMap(hashMapList.get(i));
-                entityList.add((T) g);
+            synchronized (pending) {
+                pending.put(filename, records);
             }
 
             return entityList;
@@ -131,22 +276,663 @@ public class FileManager {
         return null;
     }
 
+    /**
+     * Read every record of the file with its journal applied
+     * @param entity Entity Object used to read the key of a record
+     * @param archive true to memory map the file and keep archived records out of the results
+     * @param consumer receives each record. The HashMap may be reused for the next record.
+     * @return number of journal records, -1 if the file could not be read
+     */
+    private int readRecords(Entity<?> entity, boolean archive, Consumer<HashMap<String, String>> consumer) {
+        // Final state of every record touched by the journal
+        HashMap<String, HashMap<String, String>> changed = new HashMap<>();
+        ArrayList<String> created = new ArrayList<>();
+        int records = readJournal(entity, changed, created);
+
+        boolean success;
+        if (archive)
+            success = readMapped(entity, changed, consumer);
+        else
+            success = readFile(getDataName(), record -> applyJournal(entity, changed, record, consumer));
+        if (!success)
+            return -1;
+
+        for (String id : created)
+            if (changed.get(id) != null)
+                consumer.accept(changed.get(id));
+
+        return records;
+    }
+
+    /**
+     * Pass a record of the file to consumer with its journal applied
+     * @param entity Entity Object used to read the key of a record
+     * @param changed final state of each record touched by the journal
+     * @param record record of the file
+     * @param consumer receives the record unless it was deleted
+     */
+    private void applyJournal(Entity<?> entity, HashMap<String, HashMap<String, String>> changed, HashMap<String, String> record, Consumer<HashMap<String, String>> consumer) {
+        if (changed.size() != 0) {
+            String id = CHECKPOINT + entity.getKey(record);
+            if (changed.containsKey(id)) {
+                HashMap<String, String> changes = changed.remove(id);
+                // Deleted
+                if (changes == null)
+                    return;
+                record.putAll(changes);
+            }
+        }
+        consumer.accept(record);
+    }
+
+    /**
+     * Read the file through a memory map. Records with a value of Entity.getArchivedValues() are archived
+     * unless the journal changed them
+     * @param entity Entity Object used to read the key of a record
+     * @param changed final state of each record touched by the journal
+     * @param consumer receives each record that is not archived
+     * @return Success of the function
+     */
+    private boolean readMapped(Entity<?> entity, HashMap<String, HashMap<String, String>> changed, Consumer<HashMap<String, String>> consumer) {
+        MappedFile file;
+        try {
+            File f = new File(getDataName());
+            if (!f.exists())
+                f.createNewFile();
+            file = new MappedFile(getDataName());
+        } catch (IOException e) {
+            System.out.printf("File is invalid: %s\n", getDataName());
+            return false;
+        }
+
+        String[] archivedValues = entity.getArchivedValues();
+        for (int r = 0; r < file.size(); r++) {
+            if (archivedValues.length != 0) {
+                String value = file.decode(r, archivedValues[0]).get(archivedValues[0]);
+                boolean archived = false;
+                for (int i = 1; i < archivedValues.length; i++)
+                    archived |= archivedValues[i].equals(value);
+
+                if (archived && (changed.size() == 0 || !changed.containsKey(CHECKPOINT + entity.getKey(file.decode(r, entity.getKeyAttributes()))))) {
+                    file.archive(r);
+                    continue;
+                }
+            }
+            applyJournal(entity, changed, file.decode(r), consumer);
+        }
+
+        synchronized (archives) {
+            if (file.archivedSize() != 0)
+                archives.put(getDataName(), file);
+            else
+                archives.remove(getDataName());
+        }
+
+        return true;
+    }
+
+    /**
+     * Load archived records of the file that a search may match. Loaded records are removed from the archive.
+     * @param t takes in a object e.g. new Reservation()
+     * @param var Variable name, null to load all archived records
+     * @param content content of the variable, ignoring case
+     * @param <T> class to be processed.
+     * @return ArrayList with object casting
+     */
+    public <T> ArrayList<T> loadArchived(T t, String var, String content)
+    {
+        ArrayList<T> entityList = new ArrayList<>();
+        MappedFile file = getArchive();
+        if (file == null)
+            return entityList;
+
+        for (HashMap<String, String> record : file.take(var, content))
+            entityList.add(newEntity(t, record));
+
+        return entityList;
+    }
+
+    /**
+     * Create an Entity Object from a record
+     * @param t Entity Object of the class to be created
+     * @param data record
+     * @param <T> Entity Class
+     * @return Entity Object of the class of t
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T newEntity(T t, HashMap<String, String> data) {
+        try {
+            Entity<?> g = (Entity<?>) t.getClass().getDeclaredConstructor().newInstance();
+            g.loadHashMap(data);
+            g.setLoaded(data);
+            return (T) g;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Fold the journal into the final state of each record it touches.
+     * Records of the file are identified by CHECKPOINT + key and created records by CREATED + order of creation.
+     * Updates only hold the changed variables and the key variables.
+     * Records before a MARK of the current file are already in it, e.g. after a crash before the journal was cleared, and are dropped
+     * @param entity Entity Object used to read the key of a record
+     * @param changed receives the final state of each created record and the changed variables of each record of the file, null if deleted
+     * @param created receives the created records in order
+     * @return number of journal records
+     */
+    private int readJournal(Entity<?> entity, HashMap<String, HashMap<String, String>> changed, ArrayList<String> created) {
+        if (!new File(getJournalName()).exists())
+            return 0;
+
+        // Current key -> record it belongs to
+        HashMap<String, String> origin = new HashMap<>();
+        int[] count = {0};
+        String[] mark = {null};
+
+        readText(getJournalName(), r -> {
+            HashMap<String, String> record = new HashMap<>(r);
+            if (record.containsKey(MARK)) {
+                if (mark[0] == null)
+                    mark[0] = getMark(Paths.get(getDataName()));
+                if (record.get(MARK).equals(mark[0])) {
+                    changed.clear();
+                    created.clear();
+                    origin.clear();
+                }
+                return;
+            }
+
+            String op = record.remove(OP);
+            String key = record.remove(KEY);
+            String transaction = record.remove(TX);
+            record.remove(CLASS);
+            count[0]++;
+
+            // Transaction not committed
+            if (transaction != null) {
+                synchronized (transactional) {
+                    transactional.add(filename);
+                }
+                if (!isCommitted(transaction))
+                    return;
+            }
+
+            if (CREATE.equals(op)) {
+                String id = CREATED + created.size();
+                created.add(id);
+                changed.put(id, record);
+                origin.putIfAbsent(entity.getKey(record), id);
+                return;
+            }
+
+            String id = origin.remove(key);
+            if (id == null)
+                id = CHECKPOINT + key;
+
+            if (UPDATE.equals(op)) {
+                HashMap<String, String> state = changed.get(id);
+                if (state != null) {
+                    state.putAll(record);
+                    record = state;
+                }
+                changed.put(id, record);
+                origin.put(entity.getKey(record), id);
+            } else if (DELETE.equals(op)) {
+                changed.put(id, null);
+            }
+        });
+
+        return count[0];
+    }
+
     /**
      * Convert an Object into HashMap to begin writing to file
      * @param entityList Entity Object Array
      * @param <T> Entity Class
      * @return
      */
-    public <T> boolean write(ArrayList<T> entityList)
+    public <T> boolean write(Collection<T> entityList)
     {
+        // The archive still reads the old file through its memory map
+        if (getArchive() != null)
+            return replaceFile(toHashMaps(entityList, false), false);
+
+        return writeFile(getDataName(), toHashMaps(entityList, false));
+    }
+
+    /**
+     * Convert Objects into HashMaps. Archived records of the file are added as they are
+     * @param entityList Entity Object Array
+     * @param saved true for the values as last saved, leaving out changes not saved yet
+     * @param <T> Entity Class
+     * @return ArrayList of HashMap objects
+     */
+    private <T> ArrayList<HashMap<String, String>> toHashMaps(Collection<T> entityList, boolean saved) {
         ArrayList<HashMap<String, String>> hashMapList = new ArrayList<>();
 
-        for (int i = 0; i < entityList.size(); i++) {
-            Entity id = (Entity) entityList.get(i);
-            hashMapList.add(id.toHashMap());
+        for (T t : entityList) {
+            Entity<?> id = (Entity<?>) t;
+            if (saved && id.isNewRecord())
+                continue;
+
+            HashMap<String, String> data = saved ? id.getSavedData() : id.toHashMap();
+            data.put(Entity.VERSION, Long.toString(id.getVersion()));
+            hashMapList.add(data);
+        }
+
+        MappedFile file = getArchive();
+        if (file != null)
+            hashMapList.addAll(file.getArchived());
+
+        return hashMapList;
+    }
+
+    /**
+     * Replace the file and its journal with records that are already in the format of toHashMap()
+     * @param data ArrayList of HashMap objects
+     * @return Success of the function
+     */
+    public boolean writeRecords(ArrayList<HashMap<String, String>> data)
+    {
+        new File(getJournalName()).delete();
+        synchronized (archives) {
+            archives.remove(getDataName());
+        }
+        return writeFile(getDataName(), data);
+    }
+
+    /**
+     * Rewrite the file with its journal applied in the format of target. Records are copied as they are.
+     * @param entity Entity Object used to read the key of a record
+     * @param target FileManager of the same file in the other format
+     * @return Success of the function
+     */
+    public boolean convert(Entity<?> entity, FileManager target)
+    {
+        ArrayList<HashMap<String, String>> data = new ArrayList<>();
+        if (readRecords(entity, false, record -> data.add(new HashMap<>(record))) < 0)
+            return false;
+
+        if (!target.writeFile(target.getDataName(), data))
+            return false;
+
+        new File(getJournalName()).delete();
+        return true;
+    }
+
+    /**
+     * Append a single change of an Entity to the journal of the file.
+     * A checkpoint of entityList is scheduled once Config.checkpointRecords changes are pending
+     * @param op CREATE, UPDATE or DELETE
+     * @param entity Entity Object that was changed
+     * @param key key of the record before the change
+     * @param data all variables for CREATE, changed and key variables for UPDATE, null for DELETE
+     * @param entityList Entity Object Array the entity belongs to
+     * @param <T> Entity Class
+     * @return Success of the function
+     */
+    public <T> boolean append(String op, Entity<?> entity, String key, HashMap<String, String> data, Collection<T> entityList)
+    {
+        ArrayList<LinkedHashMap<String, String>> records = new ArrayList<>();
+        records.add(toRecord(op, entity, key, data));
+        return append(null, records, entityList).join();
+    }
+
+    /**
+     * Journal record of a single change of an Entity
+     * @param op CREATE, UPDATE or DELETE
+     * @param entity Entity Object that was changed
+     * @param key key of the record before the change
+     * @param data all variables for CREATE, changed and key variables for UPDATE, null for DELETE
+     * @return journal record
+     */
+    static LinkedHashMap<String, String> toRecord(String op, Entity<?> entity, String key, HashMap<String, String> data) {
+        LinkedHashMap<String, String> record = new LinkedHashMap<>();
+        record.put(OP, op);
+        record.put(CLASS, entity.getClass().getSimpleName());
+        record.put(KEY, key);
+        if (data != null)
+            record.putAll(data);
+
+        return record;
+    }
+
+    /**
+     * Queue journal records to be appended to the journal of the file together.
+     * Records are appended in the order they are queued. Queue them with their keys locked to keep changes in order.
+     * A checkpoint of entityList is scheduled once Config.checkpointRecords changes are pending
+     * @param transaction id of the Transaction the records belong to, null if they apply at once
+     * @param records journal records from toRecord()
+     * @param entityList Entity Object Array the records belong to
+     * @param <T> Entity Class
+     * @return completes with the success of the write once the records are on disk
+     */
+    <T> CompletableFuture<Boolean> append(String transaction, ArrayList<LinkedHashMap<String, String>> records, Collection<T> entityList)
+    {
+        StringBuilder text = new StringBuilder();
+        for (LinkedHashMap<String, String> record : records) {
+            if (transaction != null)
+                text.append(TX).append('\t').append(transaction).append('\n');
+            text.append(formatRecord(record)).append('\n');
+        }
+        CompletableFuture<Boolean> done = appendText(getJournalName(), text.toString());
+
+        if (transaction != null) {
+            synchronized (transactional) {
+                transactional.add(filename);
+            }
+        }
+
+        boolean checkpoint;
+        synchronized (pending) {
+            int count = pending.getOrDefault(filename, 0) + records.size();
+            pending.put(filename, count);
+            checkpoint = count / Config.checkpointRecords != (count - records.size()) / Config.checkpointRecords;
+        }
+
+        if (checkpoint)
+            getCheckpointer().submit(() -> checkpoint(entityList));
+
+        return done;
+    }
+
+    /**
+     * Record a Transaction as committed. Its journal records apply from then on
+     * @param transaction id of the Transaction
+     * @return Success of the function
+     */
+    static boolean commit(String transaction) {
+        if (!appendText(Config.transactionLog, transaction + '\n').join())
+            return false;
+
+        synchronized (FileManager.class) {
+            if (committed != null)
+                committed.add(transaction);
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if a Transaction is in the transaction log. The log is read on first use
+     * @param transaction id of the Transaction
+     * @return true if committed
+     */
+    private static synchronized boolean isCommitted(String transaction) {
+        if (committed == null) {
+            committed = new HashSet<>();
+            try (BufferedReader in = new BufferedReader(new FileReader(Config.transactionLog))) {
+                String line;
+                while ((line = in.readLine()) != null)
+                    committed.add(line.trim());
+            } catch (FileNotFoundException e) {
+                // No Transaction committed yet
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return committed.contains(transaction);
+    }
+
+    /**
+     * Rewrite the file from the saved values of entityList and clear the journal once the new file is on disk.
+     * Saves and Transactions are held back so no changes are appended while the file is being replaced
+     * and none of their records are cleared before they are applied.
+     * entityList is locked so no archived records are loaded into it meanwhile
+     * @param entityList Entity Object Array
+     * @param <T> Entity Class
+     * @return Success of the function
+     */
+    public <T> boolean checkpoint(Collection<T> entityList)
+    {
+        commits.writeLock().lock();
+        try {
+            synchronized (entityList) {
+                if (!replaceFile(toHashMaps(entityList, true), true))
+                    return false;
+
+                try {
+                    new FileWriter(getJournalName()).close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return false;
+                }
+
+                synchronized (pending) {
+                    pending.put(filename, 0);
+                }
+            }
+
+            // The transaction log is cleared once no journal refers to it
+            synchronized (transactional) {
+                if (!transactional.remove(filename) || !transactional.isEmpty())
+                    return true;
+            }
+            synchronized (FileManager.class) {
+                new FileWriter(Config.transactionLog).close();
+                committed = new HashSet<>();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            commits.writeLock().unlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * Write data to a temporary file and move it over the file.
+     * The records and then the move are forced to disk before returning, so the journal may be cleared afterwards.
+     * With mark, a MARK of the new file is appended to the journal before the move, so replaying a journal that was not cleared skips what the file holds
+     * @param data ArrayList of HashMap objects
+     * @param mark true if the journal is folded into data
+     * @return Success of the function
+     */
+    private boolean replaceFile(ArrayList<HashMap<String, String>> data, boolean mark) {
+        String tmp = getDataName() + ".tmp";
+        if (!writeFile(tmp, data))
+            return false;
+
+        try {
+            Path target = Paths.get(getDataName()).toAbsolutePath();
+            forceFile(Paths.get(tmp));
+            if (mark && !appendText(getJournalName(), MARK + '\t' + getMark(Paths.get(tmp)) + "\n\n").join())
+                return false;
+            Files.move(Paths.get(tmp), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(target.getParent());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Length and checksum of a file, identifying the records a checkpoint wrote to it
+     * @param path File to be read
+     * @return length:checksum, empty if the file cannot be read
+     */
+    private static String getMark(Path path) {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[65536];
+        try (InputStream in = Files.newInputStream(path)) {
+            int n;
+            while ((n = in.read(buf)) > 0)
+                crc.update(buf, 0, n);
+            return Files.size(path) + ":" + Long.toHexString(crc.getValue());
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Force the contents of a file to disk
+     * @param path File to be forced
+     * @throws IOException if the file cannot be forced
+     */
+    private static void forceFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Force the entries of a directory to disk, e.g. a file moved into it
+     * @param path Directory to be forced
+     * @throws IOException if the directory cannot be forced
+     */
+    private static void forceDirectory(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Directories cannot be opened on Windows. The move is left to the file system there
+        }
+    }
+
+    /**
+     * Records of the file that are not loaded yet
+     * @return MappedFile, null if all records are loaded
+     */
+    private MappedFile getArchive() {
+        synchronized (archives) {
+            return archives.get(getDataName());
+        }
+    }
+
+    /**
+     * File the records are stored in. Binary files replace the extension of filename with .bin
+     * @return filename of the data
+     */
+    private String getDataName() {
+        if (!binary)
+            return filename;
+
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0 ? filename.substring(0, dot) : filename) + ".bin";
+    }
+
+    /**
+     * Journal of the file
+     * @return filename of the journal
+     */
+    private String getJournalName() {
+        return filename + ".log";
+    }
+
+    /**
+     * Text waiting to be appended to a file by the group commit writer
+     */
+    private static class PendingWrite {
+        private final String filename;
+        private final String text;
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        private PendingWrite(String filename, String text) {
+            this.filename = filename;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Queue text to be appended to a file by the group commit writer
+     * @param filename File to be appended to
+     * @param text text to be appended
+     * @return completes with the success of the write once the text is on disk
+     */
+    private static CompletableFuture<Boolean> appendText(String filename, String text) {
+        PendingWrite write = new PendingWrite(filename, text);
+        startWriter();
+        writes.add(write);
+        return write.done;
+    }
+
+    /**
+     * Start the group commit writer. Created on first use.
+     */
+    private static synchronized void startWriter() {
+        if (writer != null)
+            return;
+
+        writer = new Thread(FileManager::writeBatches, "group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Group commit writer. Collects the writes queued meanwhile and, if there are several, those arriving within
+     * Config.groupCommitMillis, up to Config.groupCommitRecords. They are appended with a single write and force per file
+     */
+    private static void writeBatches() {
+        ArrayList<PendingWrite> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(writes.take());
+                writes.drainTo(batch, Config.groupCommitRecords - batch.size());
+
+                // A single save is written at once. During a burst, wait for the saves still coming in
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.groupCommitMillis);
+                while (batch.size() > 1 && batch.size() < Config.groupCommitRecords) {
+                    PendingWrite write = writes.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (write == null)
+                        break;
+                    batch.add(write);
+                }
+            } catch (InterruptedException e) {
+                // Write what has been collected
+            }
+
+            // File -> text of the batch in order of arrival
+            LinkedHashMap<String, StringBuilder> files = new LinkedHashMap<>();
+            for (PendingWrite write : batch)
+                files.computeIfAbsent(write.filename, k -> new StringBuilder()).append(write.text);
+
+            HashMap<String, Boolean> results = new HashMap<>();
+            for (Map.Entry<String, StringBuilder> o : files.entrySet())
+                results.put(o.getKey(), force(o.getKey(), o.getValue().toString()));
+
+            for (PendingWrite write : batch)
+                write.done.complete(results.get(write.filename));
+            batch.clear();
+        }
+    }
+
+    /**
+     * Append text to a file and force it to disk
+     * @param filename File to be appended to
+     * @param text text to be appended
+     * @return Success of the function
+     */
+    private static boolean force(String filename, String text) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(text.getBytes());
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            channel.force(false);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Background thread running checkpoints. Created on first use.
+     * @return ExecutorService
+     */
+    private static synchronized ExecutorService getCheckpointer() {
+        if (checkpointer == null) {
+            checkpointer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "checkpoint");
+                t.setDaemon(true);
+                return t;
+            });
         }
 
-        return writeFile(hashMapList);
+        return checkpointer;
     }
 
 }
@@ -0,0 +1,246 @@
+package com.hotel.core;
+
+import java.util.*;
+
+/**
+ * Reads and writes JSON
+ * Objects are read as LinkedHashMap, arrays as ArrayList, numbers as Long or Double
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Json {
+    // Objects and arrays nested deeper are rejected, as every level is read by a recursive call
+    public static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int pos = 0;
+    private int depth = 0;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse JSON text
+     * @param text JSON text
+     * @return Map, List, String, Long, Double, Boolean or null
+     * @throws IllegalArgumentException if the text is not valid JSON or nested deeper than MAX_DEPTH
+     */
+    public static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.readValue();
+        json.skipSpaces();
+        if (json.pos != text.length())
+            throw json.error();
+        return value;
+    }
+
+    /**
+     * Read a parsed value as a JSON object
+     * @param value value returned by parse()
+     * @return Map of variable name and value, null if value is not an object
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> asObject(Object value) {
+        // Objects are only read as LinkedHashMap<String, Object>
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    /**
+     * Write a value as JSON text. Maps, Collections and arrays are written recursively, any other Object as a String
+     * @param value value to be written
+     * @return JSON text
+     */
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    private static void write(StringBuilder sb, Object value) {
+        if (value == null || value instanceof Boolean || value instanceof Number) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                if (sb.charAt(sb.length() - 1) != '{')
+                    sb.append(',');
+                writeString(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                write(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            Collection<?> list = value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value);
+            sb.append('[');
+            for (Object o : list) {
+                if (sb.charAt(sb.length() - 1) != '[')
+                    sb.append(',');
+                write(sb, o);
+            }
+            sb.append(']');
+        } else {
+            writeString(sb, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private Object readValue() {
+        skipSpaces();
+        if (pos >= text.length())
+            throw error();
+
+        char c = text.charAt(pos);
+        if (c == '{' || c == '[') {
+            if (++depth > MAX_DEPTH)
+                throw new IllegalArgumentException("JSON nested deeper than " + MAX_DEPTH + " levels at position " + pos);
+            Object value = c == '{' ? readObject() : readArray();
+            depth--;
+            return value;
+        }
+        if (c == '"')
+            return readString();
+        if (text.startsWith("true", pos)) {
+            pos += 4;
+            return true;
+        }
+        if (text.startsWith("false", pos)) {
+            pos += 5;
+            return false;
+        }
+        if (text.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        }
+        return readNumber();
+    }
+
+    private LinkedHashMap<String, Object> readObject() {
+        LinkedHashMap<String, Object> results = new LinkedHashMap<>();
+        pos++;
+        skipSpaces();
+        if (consume('}'))
+            return results;
+
+        do {
+            skipSpaces();
+            if (pos >= text.length() || text.charAt(pos) != '"')
+                throw error();
+            String key = readString();
+            skipSpaces();
+            if (!consume(':'))
+                throw error();
+            results.put(key, readValue());
+            skipSpaces();
+        } while (consume(','));
+
+        if (!consume('}'))
+            throw error();
+        return results;
+    }
+
+    private ArrayList<Object> readArray() {
+        ArrayList<Object> results = new ArrayList<>();
+        pos++;
+        skipSpaces();
+        if (consume(']'))
+            return results;
+
+        do {
+            results.add(readValue());
+            skipSpaces();
+        } while (consume(','));
+
+        if (!consume(']'))
+            throw error();
+        return results;
+    }
+
+    private String readString() {
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"')
+                return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+
+            if (pos >= text.length())
+                break;
+            c = text.charAt(pos++);
+            switch (c) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > text.length())
+                        throw error();
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error();
+                    }
+                    pos += 4;
+                    break;
+                default: sb.append(c);
+            }
+        }
+        throw error();
+    }
+
+    private Number readNumber() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)
+            pos++;
+
+        String number = text.substring(start, pos);
+        try {
+            if (number.matches("-?\\d+"))
+                return Long.parseLong(number);
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error();
+        }
+    }
+
+    private boolean consume(char c) {
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            pos++;
+    }
+
+    private IllegalArgumentException error() {
+        return new IllegalArgumentException("Invalid JSON at position " + pos);
+    }
+}
@@ -0,0 +1,207 @@
+package com.hotel.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Text file of records read through a memory map
+ * Only the position of each record is kept. Records are decoded when they are needed.
+ * Records that were not loaded at start stay in the archive until a search takes them.
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+class MappedFile {
+    private MappedByteBuffer buffer;
+    private Charset charset = Charset.defaultCharset();
+    // Position of each record. start inclusive, end exclusive
+    private int[] starts = new int[1024];
+    private int[] ends = new int[1024];
+    private int size = 0;
+
+    // Records not loaded yet
+    private BitSet archived = new BitSet();
+    // Variable name -> lower case value -> archived records. Built on the first search of a variable
+    private HashMap<String, HashMap<String, ArrayList<Integer>>> values = new HashMap<>();
+
+    /**
+     * Map a file and find the position of every record
+     * @param filename File to be read
+     * @throws IOException if the file cannot be mapped
+     */
+    MappedFile(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int limit = buffer.limit();
+        // Start of the current record and line
+        int start = -1;
+        int line = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) != '\n')
+                continue;
+
+            // An empty line ends the record
+            int end = i > line && buffer.get(i - 1) == '\r' ? i - 1 : i;
+            if (end == line) {
+                if (start != -1)
+                    add(start, line);
+                start = -1;
+            } else if (start == -1) {
+                start = line;
+            }
+            line = i + 1;
+        }
+
+        if (start == -1 && line < limit)
+            start = line;
+        if (start != -1)
+            add(start, limit);
+    }
+
+    private void add(int start, int end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    /**
+     * Number of records in the file
+     * @return number of records
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Decode a record. Lines are read as in FileManager: trimmed and split on the first tab.
+     * @param record index of the record
+     * @param vars variables to be decoded, none for all
+     * @return HashMap of the record
+     */
+    HashMap<String, String> decode(int record, String... vars) {
+        byte[] bytes = new byte[ends[record] - starts[record]];
+        ByteBuffer b = buffer.duplicate();
+        b.position(starts[record]);
+        b.get(bytes);
+
+        HashMap<String, String> data = new HashMap<>();
+        int line = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n')
+                continue;
+
+            int start = line, end = i;
+            line = i + 1;
+            if (start == end)
+                continue;
+
+            while (start < end && (bytes[start] & 0xFF) <= ' ')
+                start++;
+            while (end > start && (bytes[end - 1] & 0xFF) <= ' ')
+                end--;
+
+            int tab = start;
+            while (tab < end && bytes[tab] != '\t')
+                tab++;
+
+            String key = new String(bytes, start, tab - start, charset);
+            if (vars.length != 0 && !contains(vars, key))
+                continue;
+            data.put(key, tab >= end ? "" : new String(bytes, tab + 1, end - tab - 1, charset));
+        }
+
+        return data;
+    }
+
+    private static boolean contains(String[] vars, String key) {
+        for (String var : vars)
+            if (var.equals(key))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Keep a record in the archive instead of loading it
+     * @param record index of the record
+     */
+    synchronized void archive(int record) {
+        archived.set(record);
+    }
+
+    /**
+     * Number of records in the archive
+     * @return number of records
+     */
+    synchronized int archivedSize() {
+        return archived.cardinality();
+    }
+
+    /**
+     * Remove archived records from the archive and decode them
+     * @param var Variable name, null to take all archived records
+     * @param content content of the variable, ignoring case
+     * @return ArrayList of records
+     */
+    synchronized ArrayList<HashMap<String, String>> take(String var, String content) {
+        ArrayList<HashMap<String, String>> results = new ArrayList<>();
+        if (archived.isEmpty())
+            return results;
+
+        if (var == null) {
+            for (int r = archived.nextSetBit(0); r >= 0; r = archived.nextSetBit(r + 1))
+                results.add(decode(r));
+            archived.clear();
+            values.clear();
+            return results;
+        }
+
+        HashMap<String, ArrayList<Integer>> index = values.get(var);
+        if (index == null) {
+            index = new HashMap<>();
+            for (int r = archived.nextSetBit(0); r >= 0; r = archived.nextSetBit(r + 1)) {
+                String value = decode(r, var).get(var);
+                index.computeIfAbsent(value == null ? null : value.toLowerCase(), k -> new ArrayList<>()).add(r);
+            }
+            values.put(var, index);
+        }
+
+        ArrayList<Integer> records = index.remove(content == null ? null : content.toLowerCase());
+        if (records != null) {
+            for (int r : records) {
+                if (archived.get(r)) {
+                    results.add(decode(r));
+                    archived.clear(r);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Decode all archived records without removing them from the archive
+     * @return ArrayList of records
+     */
+    synchronized ArrayList<HashMap<String, String>> getArchived() {
+        ArrayList<HashMap<String, String>> results = new ArrayList<>();
+        for (int r = archived.nextSetBit(0); r >= 0; r = archived.nextSetBit(r + 1))
+            results.add(decode(r));
+
+        return results;
+    }
+}
@@ -0,0 +1,106 @@
+package com.hotel.core;
+
+import java.util.function.Predicate;
+
+/**
+ * Builds a search of an Entity class, e.g. new Reservation().query().is("guestId", id).is("reservationStatus", "CHECKED_IN").find()
+ * Every condition added has to match. Nothing is searched until find() or findAll() is called
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Query<T extends Entity<T>> {
+    private final T entity;
+    private Criteria criteria = Criteria.all();
+    private int limit = -1;
+
+    /**
+     * Constructor of Query
+     * @param entity object of the class to be searched
+     */
+    Query(T entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Variable equal to a value, ignoring case
+     * @param var Variable name
+     * @param value value of the variable
+     * @return this Query
+     */
+    public Query<T> is(String var, String value) {
+        return where(Criteria.is(var, value));
+    }
+
+    /**
+     * Variable equal to any of the values, ignoring case
+     * @param var Variable name
+     * @param values values of the variable
+     * @return this Query
+     */
+    public Query<T> in(String var, String... values) {
+        return where(Criteria.in(var, values));
+    }
+
+    /**
+     * Variable containing the content, ignoring case
+     * @param var Variable name
+     * @param content part of the value of the variable
+     * @return this Query
+     */
+    public Query<T> contains(String var, String content) {
+        return where(Criteria.contains(var, content));
+    }
+
+    /**
+     * Any other Criteria, e.g. combined with OR and NOT
+     * @param criteria Criteria
+     * @return this Query
+     */
+    public Query<T> where(Criteria criteria) {
+        this.criteria = this.criteria.and(criteria);
+        return this;
+    }
+
+    /**
+     * Stop the search once enough objects are found
+     * @param results Number of objects to be returned. -1 for all results to be returned
+     * @return this Query
+     */
+    public Query<T> limit(int results) {
+        this.limit = results;
+        return this;
+    }
+
+    /**
+     * Criteria of all conditions added
+     * @return Criteria
+     */
+    public Criteria getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Compile the conditions into a predicate, e.g. to filter objects already found
+     * @return predicate true for every object matching all conditions
+     */
+    public Predicate<T> toPredicate() {
+        return entity.compile(criteria);
+    }
+
+    /**
+     * Find the first matching object. The search stops at the first match
+     * @return null if not found, Object if found
+     */
+    public T find() {
+        T results[] = entity.findAll(criteria, 1);
+        return results.length == 0 ? null : results[0];
+    }
+
+    /**
+     * Find matching objects, at most the limit
+     * @return Object Array in the order of the store, empty if not found
+     */
+    public T[] findAll() {
+        return entity.findAll(criteria, limit);
+    }
+}
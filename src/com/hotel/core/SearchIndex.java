@@ -0,0 +1,92 @@
+package com.hotel.core;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index of a variable for partial match searches
+ * Every value is lower cased once and split into all of its runs of GRAM characters (n-grams).
+ * A search only visits the Entities that contain the rarest n-gram of the content, in the order of the store.
+ * Candidates still have to be compared with the content, since n-grams may be in a different order
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+class SearchIndex {
+    static final int GRAM = 3;
+
+    // n-gram -> Entities with a value containing it
+    private final Map<String, Set<Entity<?>>> grams = new ConcurrentHashMap<>();
+
+    /**
+     * Add an Entity under a value
+     * @param e Entity Object
+     * @param value lower case value
+     */
+    void add(Entity<?> e, String value) {
+        for (String gram : split(value))
+            grams.computeIfAbsent(gram, k -> new ConcurrentSkipListSet<>(Comparator.comparingLong(Entity::getSequence))).add(e);
+    }
+
+    /**
+     * Remove an Entity from a value
+     * @param e Entity Object
+     * @param value lower case value it was added under
+     */
+    void remove(Entity<?> e, String value) {
+        for (String gram : split(value)) {
+            Set<Entity<?>> set = grams.get(gram);
+            if (set != null)
+                set.remove(e);
+        }
+    }
+
+    /**
+     * Entities that may contain the content
+     * @param content content to search for
+     * @return Collection of Entities, null if the content is too short to be searched in the index
+     */
+    Collection<Entity<?>> candidates(String content) {
+        if (content.length() < GRAM)
+            return null;
+
+        Set<Entity<?>> results = null;
+        for (String gram : split(content.toLowerCase())) {
+            Set<Entity<?>> set = grams.get(gram);
+            if (set == null)
+                return Collections.emptyList();
+            if (results == null || isSmaller(set, results))
+                results = set;
+        }
+
+        return results;
+    }
+
+    /**
+     * All distinct n-grams of a value
+     * @param value lower case value
+     * @return n-grams
+     */
+    private static HashSet<String> split(String value) {
+        HashSet<String> results = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++)
+            results.add(value.substring(i, i + GRAM));
+        return results;
+    }
+
+    /**
+     * Check if a Collection has fewer elements than another, counting at most the elements of the smaller one.
+     * Sizes of concurrent Collections are not constant time
+     */
+    static boolean isSmaller(Collection<?> c, Collection<?> other) {
+        Iterator<?> a = c.iterator();
+        Iterator<?> b = other.iterator();
+        while (a.hasNext()) {
+            if (!b.hasNext())
+                return false;
+            a.next();
+            b.next();
+        }
+        return b.hasNext();
+    }
+}
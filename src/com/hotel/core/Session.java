@@ -0,0 +1,100 @@
+package com.hotel.core;
+
+import java.io.*;
+import java.util.Scanner;
+
+/**
+ * Input and output of a terminal connected to the server
+ * Boundary reads from the Session of the current thread and System.out writes to it.
+ * Threads without a Session read and write the console
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Session {
+    // Session of the current thread
+    private static final ThreadLocal<Session> current = new ThreadLocal<>();
+    // System.out before it was routed to Sessions
+    private static PrintStream console = null;
+
+    private final PrintStream out;
+    private final Scanner scanner;
+
+    /**
+     * Constructor of Session
+     * @param in input of the terminal
+     * @param out output of the terminal
+     */
+    public Session(InputStream in, OutputStream out) {
+        this.out = new PrintStream(new BufferedOutputStream(out), false);
+
+        // Prompts are flushed before waiting for the terminal
+        this.scanner = new Scanner(new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                Session.this.out.flush();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                Session.this.out.flush();
+                return super.read(b, off, len);
+            }
+        });
+    }
+
+    /**
+     * Run work with the input and output of this Session on the current thread
+     * @param work work to be run, e.g. new MainControl().process()
+     */
+    public void run(Runnable work) {
+        routeOutput();
+        current.set(this);
+        try {
+            work.run();
+        } finally {
+            out.flush();
+            current.remove();
+        }
+    }
+
+    /**
+     * Input of the Session of the current thread
+     * @return Scanner, null if the thread has no Session
+     */
+    static Scanner getScanner() {
+        Session session = current.get();
+        return session == null ? null : session.scanner;
+    }
+
+    /**
+     * Replace System.out with a stream writing to the Session of the current thread. ONE TIME ONLY.
+     */
+    private static synchronized void routeOutput() {
+        if (console != null)
+            return;
+
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                target().write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                target().write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                target().flush();
+            }
+        }, true));
+    }
+
+    private static PrintStream target() {
+        Session session = current.get();
+        return session == null ? console : session.out;
+    }
+}
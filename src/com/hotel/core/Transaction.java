@@ -0,0 +1,231 @@
+package com.hotel.core;
+
+import com.hotel.Config;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Groups saves and deletes of several Entities into a single commit
+ * Entity.save() and Entity.delete() called inside run() are only written once all of them succeed.
+ * Records are appended to the journal of each file under the id of the transaction, then the id is added to
+ * Config.transactionLog. Until then FileManager skips the records, so a crash leaves every file as it was.
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Transaction {
+    // Transaction of the current thread
+    private static final ThreadLocal<Transaction> current = new ThreadLocal<>();
+
+    // Entity -> true if deleted. In order of the first change
+    private LinkedHashMap<Entity<?>, Boolean> changes = new LinkedHashMap<>();
+    // Entity -> version expected at the first change
+    private HashMap<Entity<?>, Long> versions = new HashMap<>();
+    // Run once the transaction is committed
+    private ArrayList<Runnable> afterCommit = new ArrayList<>();
+    // Run if the transaction fails
+    private ArrayList<Runnable> afterRollback = new ArrayList<>();
+
+    private Transaction() {
+    }
+
+    /**
+     * Run work in a transaction and commit its changes together.
+     * Inside another transaction, work joins the outer transaction instead.
+     * Changed Entities are reverted to their saved values if work or the commit fails
+     * @param work saves and deletes Entities, returns false to discard all changes
+     * @return true if success, false otherwise
+     */
+    public static boolean run(BooleanSupplier work) {
+        if (current.get() != null)
+            return work.getAsBoolean();
+
+        Transaction tx = new Transaction();
+        boolean success;
+        current.set(tx);
+        try {
+            success = work.getAsBoolean();
+        } finally {
+            current.remove();
+        }
+
+        if (success)
+            success = tx.commit();
+        if (!success) {
+            tx.rollback();
+            for (Runnable task : tx.afterRollback)
+                task.run();
+            return false;
+        }
+
+        for (Runnable task : tx.afterCommit)
+            task.run();
+
+        return true;
+    }
+
+    /**
+     * Run a task once the current transaction is committed, or at once outside of a transaction
+     * @param task task to be run
+     */
+    public static void afterCommit(Runnable task) {
+        Transaction tx = current.get();
+        if (tx == null)
+            task.run();
+        else
+            tx.afterCommit.add(task);
+    }
+
+    /**
+     * Run a task if the current transaction fails, e.g. to release what it held for its changes.
+     * Nothing is run outside of a transaction
+     * @param task task to be run
+     */
+    public static void afterRollback(Runnable task) {
+        Transaction tx = current.get();
+        if (tx != null)
+            tx.afterRollback.add(task);
+    }
+
+    /**
+     * Transaction of the current thread
+     * @return Transaction, null if none
+     */
+    static Transaction current() {
+        return current.get();
+    }
+
+    /**
+     * Queue an Entity to be written when the transaction commits
+     * @param entity Entity Object
+     * @param delete true to delete the object, false to save it
+     * @param expected version the record is expected to be at
+     */
+    void add(Entity<?> entity, boolean delete, long expected) {
+        changes.put(entity, delete);
+        versions.putIfAbsent(entity, expected);
+    }
+
+    /**
+     * Write all changes. With Config.journal the changes of each file are appended in a single write
+     * and apply together once the transaction is in the transaction log.
+     * Nothing is committed if any record is no longer at the version expected.
+     * The keys written stay locked until the changes are applied, so no other save passes the version check meanwhile
+     * @return true if success, false otherwise
+     */
+    private boolean commit() {
+        // Class name -> changed Entities. Classes are locked in order of their names so commits never deadlock
+        TreeMap<String, ArrayList<Entity<?>>> classes = new TreeMap<>();
+        for (Entity<?> e : changes.keySet())
+            classes.computeIfAbsent(e.getClass().getName(), k -> new ArrayList<>()).add(e);
+
+        FileManager.commits.readLock().lock();
+        try {
+            return withLocks(classes.values().iterator(), () -> {
+                for (ArrayList<Entity<?>> entities : classes.values())
+                    for (Entity<?> e : entities)
+                        if (!e.checkVersion(versions.get(e)))
+                            return false;
+
+                return Config.journal ? appendJournals(classes.values()) : writeFiles(classes.values());
+            });
+        } finally {
+            FileManager.commits.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run work while holding the locks of the keys of every class
+     * @param classes changed Entities of each class
+     * @param work write to be done
+     * @return result of work
+     */
+    private static boolean withLocks(Iterator<ArrayList<Entity<?>>> classes, BooleanSupplier work) {
+        if (!classes.hasNext())
+            return work.getAsBoolean();
+
+        ArrayList<Entity<?>> entities = classes.next();
+        ArrayList<String> keys = new ArrayList<>();
+        for (Entity<?> e : entities)
+            keys.add(e.getSavedKey());
+
+        return entities.get(0).getStore().withLocks(keys, () -> withLocks(classes, work));
+    }
+
+    /**
+     * Append the changes of every class to its journal and apply them once the transaction is in the transaction log.
+     * The records of every file are queued before waiting, so they are forced to disk together
+     * @param classes changed Entities of each class
+     * @return true if success, false otherwise
+     */
+    private boolean appendJournals(Collection<ArrayList<Entity<?>>> classes) {
+        // Entity -> values saved, null if deleted
+        LinkedHashMap<Entity<?>, HashMap<String, String>> saved = new LinkedHashMap<>();
+
+        String id = UUID.randomUUID().toString();
+        ArrayList<CompletableFuture<Boolean>> written = new ArrayList<>();
+        for (ArrayList<Entity<?>> entities : classes) {
+            ArrayList<LinkedHashMap<String, String>> records = new ArrayList<>();
+            for (Entity<?> e : entities) {
+                HashMap<String, String> values = changes.get(e) ? null : e.toHashMap();
+                LinkedHashMap<String, String> record = e.getJournalRecord(values);
+                if (record == null)
+                    continue;
+
+                records.add(record);
+                saved.put(e, values);
+            }
+
+            Entity<?> first = entities.get(0);
+            if (records.size() != 0)
+                written.add(first.getFileManager().append(id, records, first.getStore()));
+        }
+
+        boolean success = true;
+        for (CompletableFuture<Boolean> w : written)
+            success &= w.join();
+
+        // Records written are never committed without the id in the transaction log
+        if (!success || (written.size() != 0 && !FileManager.commit(id))) {
+            System.out.println("Failed to save file!!!");
+            return false;
+        }
+
+        for (Map.Entry<Entity<?>, HashMap<String, String>> o : saved.entrySet())
+            o.getKey().applyCommit(o.getValue());
+
+        return true;
+    }
+
+    /**
+     * Apply all changes and rewrite the file of every class once. Used without a journal
+     * @param classes changed Entities of each class
+     * @return true if success, false otherwise
+     */
+    private boolean writeFiles(Collection<ArrayList<Entity<?>>> classes) {
+        for (ArrayList<Entity<?>> entities : classes) {
+            for (Entity<?> e : entities)
+                e.applyCommit(changes.get(e) ? null : e.toHashMap());
+
+            Entity<?> first = entities.get(0);
+            EntityStore store = first.getStore();
+            synchronized (store) {
+                if (!first.getFileManager().write(store)) {
+                    System.out.println("Failed to save file!!!");
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Revert every changed Entity to its saved values
+     */
+    private void rollback() {
+        for (Entity<?> e : changes.keySet())
+            e.revertOldData();
+    }
+}
@@ -0,0 +1,191 @@
+package com.hotel.entities;
+
+import com.hotel.core.Criteria;
+import com.hotel.core.DateManager;
+import com.hotel.core.Transaction;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability of Rooms
+ * Tracks the nights each Room is held by a Reservation so that Rooms can be reserved for any range of dates.
+ * New Reservations hold their nights with reserve() before they are committed, so no two Reservations are given the same night
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class Availability {
+    // Room ID -> nights held. Bit 0 is the night of baseDay
+    private static HashMap<String, BitSet> nights = null;
+    // Reservation code -> nights currently held by the Reservation
+    private static HashMap<String, Stay> held = null;
+    private static long baseDay;
+
+    /**
+     * Nights [from, to) of a Room held by a Reservation
+     */
+    private static class Stay {
+        private String roomId;
+        private int from;
+        private int to;
+
+        private Stay(String roomId, int from, int to) {
+            this.roomId = roomId;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Load all Reservations holding a Room. ONE TIME ONLY.
+     */
+    private static void init() {
+        if (nights != null)
+            return;
+
+        nights = new HashMap<>();
+        held = new HashMap<>();
+        baseDay = DateManager.getEpochDay(new Date());
+
+        for (Reservation rsv : new Reservation().findAll("reservationStatus", Reservation.ReservationStatus.CONFIRMED.toString()))
+            hold(rsv);
+        for (Reservation rsv : new Reservation().findAll("reservationStatus", Reservation.ReservationStatus.CHECKED_IN.toString()))
+            hold(rsv);
+    }
+
+    /**
+     * Update the nights held by a Reservation after it has been saved
+     * @param rsv Reservation Entity
+     */
+    public static synchronized void update(Reservation rsv) {
+        init();
+        release(rsv.getReservationCode());
+
+        Reservation.ReservationStatus status = rsv.getReservationStatus();
+        if (status == Reservation.ReservationStatus.CONFIRMED || status == Reservation.ReservationStatus.CHECKED_IN)
+            hold(rsv);
+    }
+
+    /**
+     * Hold the nights of a new Reservation if its Room is free for every one of them.
+     * The check and the hold are a single step. The nights are released again if the current Transaction fails
+     * @param rsv Reservation Entity being saved
+     * @return true if held, false if the Room is not available
+     */
+    public static synchronized boolean reserve(Reservation rsv) {
+        init();
+        if (!isAvailable(rsv.getRoom(), rsv.getCheckInDate(), rsv.getCheckOutDate()))
+            return false;
+
+        hold(rsv);
+        String code = rsv.getReservationCode();
+        Transaction.afterRollback(() -> cancel(code));
+        return true;
+    }
+
+    /**
+     * Release the nights held by a Reservation that was never committed
+     * @param code reservation code
+     */
+    private static synchronized void cancel(String code) {
+        release(code);
+    }
+
+    /**
+     * Checks if a Room is free for every night from check in to check out
+     * @param room Room Entity
+     * @param checkIn Check in Date
+     * @param checkOut Check out Date
+     * @return true if available
+     */
+    public static synchronized boolean isAvailable(Room room, Date checkIn, Date checkOut) {
+        init();
+        if (room.getStatus() == Room.RoomStatus.UNDER_MAINTENANCE)
+            return false;
+
+        // Room is still occupied tonight
+        if (DateManager.getEpochDay(checkIn) <= DateManager.getEpochDay(new Date()) && room.getStatus() == Room.RoomStatus.OCCUPIED)
+            return false;
+
+        BitSet bits = nights.get(room.getRoomId());
+        if (bits == null)
+            return true;
+
+        int next = bits.nextSetBit(toNight(checkIn));
+        return next == -1 || next >= toNight(checkOut);
+    }
+
+    /**
+     * Status of a Room tonight. Rooms are only set RESERVED when booked on the day of arrival,
+     * so a VACANT Room held tonight by an earlier booking is RESERVED as well
+     * @param room Room Entity
+     * @return status of the Room
+     */
+    public static Room.RoomStatus getStatus(Room room) {
+        if (room.getStatus() != Room.RoomStatus.VACANT)
+            return room.getStatus();
+
+        Date now = new Date();
+        Date tomorrow = new Date(now.getTime() + TimeUnit.DAYS.toMillis(1));
+        return isAvailable(room, now, tomorrow) ? Room.RoomStatus.VACANT : Room.RoomStatus.RESERVED;
+    }
+
+    /**
+     * Find Rooms that are free for every night from check in to check out
+     * @param roomType Room Type, null for all Room Types
+     * @param checkIn Check in Date
+     * @param checkOut Check out Date
+     * @return Room Array
+     */
+    public static Room[] findVacantRooms(Room.RoomType roomType, Date checkIn, Date checkOut) {
+        return findVacantRooms(roomType == null ? Criteria.all() : Criteria.is("roomType", roomType.toString()), checkIn, checkOut);
+    }
+
+    /**
+     * Find Rooms matching Criteria that are free for every night from check in to check out
+     * @param criteria Criteria on the variables of Room, e.g. bedType, facing, wifiEnabled, smokingAllowed and roomFloor
+     * @param checkIn Check in Date
+     * @param checkOut Check out Date
+     * @return Room Array
+     */
+    public static Room[] findVacantRooms(Criteria criteria, Date checkIn, Date checkOut) {
+        Criteria maintenance = Criteria.is("status", Room.RoomStatus.UNDER_MAINTENANCE.toString());
+        Room rooms[] = new Room().findAll(criteria.and(maintenance.not()));
+
+        ArrayList<Room> results = new ArrayList<>();
+        for (Room r : rooms)
+            if (isAvailable(r, checkIn, checkOut))
+                results.add(r);
+
+        return results.toArray(new Room[results.size()]);
+    }
+
+    private static void hold(Reservation rsv) {
+        Stay stay = new Stay(rsv.getRoomId(), toNight(rsv.getCheckInDate()), toNight(rsv.getCheckOutDate()));
+
+        // Stay is already over
+        if (stay.from >= stay.to)
+            return;
+
+        nights.computeIfAbsent(stay.roomId, k -> new BitSet()).set(stay.from, stay.to);
+        held.put(rsv.getReservationCode(), stay);
+    }
+
+    private static void release(String code) {
+        Stay stay = held.remove(code);
+        if (stay != null)
+            nights.get(stay.roomId).clear(stay.from, stay.to);
+    }
+
+    /**
+     * Bit of the night starting on date. Nights before baseDay are not tracked
+     * @param date Date
+     * @return bit index
+     */
+    private static int toNight(Date date) {
+        return (int) Math.max(0, DateManager.getEpochDay(date) - baseDay);
+    }
+}
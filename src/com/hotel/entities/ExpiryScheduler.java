@@ -0,0 +1,201 @@
+package com.hotel.entities;
+
+import com.hotel.Config;
+import com.hotel.core.DateManager;
+import com.hotel.core.Entity;
+import com.hotel.core.Transaction;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires CONFIRMED Reservations in the background once Config.expireHours have passed after check in.
+ * Reservations are kept in a queue ordered by expiry so only the next due Reservation is waited on.
+ * A batch that fails to commit is queued again after Config.expiryRetrySeconds, backing off on every failure.
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class ExpiryScheduler {
+    private static PriorityQueue<Entry> queue = null;
+    private static ScheduledExecutorService executor = null;
+    private static ScheduledFuture<?> next = null;
+
+    /**
+     * Reservation waiting to be expired
+     */
+    private static class Entry {
+        private long due;
+        private String code;
+        // Time of the next attempt, after due once a batch failed to commit
+        private long at;
+        private int failures = 0;
+
+        private Entry(long due, Reservation rsv) {
+            this.due = due;
+            this.code = rsv.getReservationCode();
+            this.at = due;
+        }
+
+        /**
+         * Wait longer after every failure
+         */
+        private void retry() {
+            at = System.currentTimeMillis() + (Config.expiryRetrySeconds * 1000L << Math.min(failures, 6));
+            failures++;
+        }
+    }
+
+    /**
+     * Queue all CONFIRMED Reservations and start expiring them. ONE TIME ONLY.
+     */
+    public static synchronized void start() {
+        if (executor != null)
+            return;
+
+        queue = new PriorityQueue<>(Comparator.comparingLong((Entry e) -> e.at));
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expiry");
+            t.setDaemon(true);
+            return t;
+        });
+
+        for (Reservation rsv : new Reservation().findAll("reservationStatus", Reservation.ReservationStatus.CONFIRMED.toString()))
+            queue.add(new Entry(rsv.getExpiryDate().getTime(), rsv));
+
+        reschedule();
+    }
+
+    /**
+     * Stop expiring Reservations. Waits for a running batch to finish saving.
+     */
+    public static void stop() {
+        ExecutorService e;
+        synchronized (ExpiryScheduler.class) {
+            e = executor;
+            if (e == null)
+                return;
+            if (next != null)
+                next.cancel(false);
+            e.shutdown();
+        }
+
+        try {
+            e.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a Reservation after it has been saved. Reservations that are no longer CONFIRMED are skipped when due.
+     * @param rsv Reservation Entity
+     */
+    public static synchronized void schedule(Reservation rsv) {
+        if (executor == null || rsv.getReservationStatus() != Reservation.ReservationStatus.CONFIRMED)
+            return;
+
+        Entry entry = new Entry(rsv.getExpiryDate().getTime(), rsv);
+        queue.add(entry);
+        if (queue.peek() == entry)
+            reschedule();
+    }
+
+    /**
+     * Wait for the Reservation at the head of the queue
+     */
+    private static void reschedule() {
+        if (next != null)
+            next.cancel(false);
+
+        next = null;
+        if (queue.isEmpty() || executor.isShutdown())
+            return;
+
+        long delay = queue.peek().at - System.currentTimeMillis();
+        next = executor.schedule(ExpiryScheduler::expireDue, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Expire all Reservations that are due in a single Transaction. Rooms are saved once per batch.
+     */
+    private static void expireDue() {
+        ArrayList<Entry> entries = new ArrayList<>();
+        synchronized (ExpiryScheduler.class) {
+            long now = System.currentTimeMillis();
+            while (!queue.isEmpty() && queue.peek().at <= now)
+                entries.add(queue.poll());
+        }
+
+        // Reservations are expired on working copies, so sessions never see a batch that fails to commit
+        ArrayList<Reservation> due = new ArrayList<>();
+        ArrayList<Entry> batch = new ArrayList<>();
+        for (Entry entry : entries) {
+            Reservation rsv = new Reservation().find("reservationCode", entry.code);
+
+            // Skip Reservations checked in, expired or rescheduled since they were queued
+            if (rsv != null && rsv.getReservationStatus() == Reservation.ReservationStatus.CONFIRMED && rsv.getExpiryDate().getTime() == entry.due) {
+                due.add(rsv.checkout());
+                batch.add(entry);
+            }
+        }
+
+        // The batch of Reservations and the Rooms they free are committed together. Any failed save fails the batch
+        Entity.resolveAll(due);
+        HashSet<String> codes = new HashSet<>();
+        for (Reservation rsv : due)
+            codes.add(rsv.getReservationCode());
+
+        boolean success = batch.isEmpty() || Transaction.run(() -> {
+            // Room ID -> Room to be freed
+            LinkedHashMap<String, Room> rooms = new LinkedHashMap<>();
+            for (Reservation rsv : due) {
+                rsv.setReservationStatus(Reservation.ReservationStatus.EXPIRED);
+                if (!rsv.save())
+                    return false;
+
+                // Free the Room only if it was held for this guest, not for another guest arriving today
+                Room r = rsv.getRoom();
+                if (r.getStatus() == Room.RoomStatus.RESERVED && !rooms.containsKey(r.getRoomId()) && !isHeldByOther(r, codes)) {
+                    r = r.checkout();
+                    r.setStatus(Room.RoomStatus.VACANT);
+                    rooms.put(r.getRoomId(), r);
+                }
+            }
+
+            for (Room r : rooms.values())
+                if (!r.save())
+                    return false;
+
+            return true;
+        });
+
+        synchronized (ExpiryScheduler.class) {
+            if (!success && !executor.isShutdown()) {
+                for (Entry entry : batch) {
+                    entry.retry();
+                    queue.add(entry);
+                }
+            }
+            reschedule();
+        }
+    }
+
+    /**
+     * Check if a Room is held tonight by a CONFIRMED Reservation other than the ones being expired
+     * @param room Room Entity
+     * @param codes reservation codes being expired
+     * @return true if another Reservation arrives on or before today
+     */
+    private static boolean isHeldByOther(Room room, Set<String> codes) {
+        long today = DateManager.getEpochDay(new Date());
+        for (Reservation rsv : new Reservation().findAll("roomId", room.getRoomId(), "reservationStatus", Reservation.ReservationStatus.CONFIRMED.toString()))
+            if (!codes.contains(rsv.getReservationCode()) && DateManager.getEpochDay(rsv.getCheckInDate()) <= today)
+                return true;
+
+        return false;
+    }
+}
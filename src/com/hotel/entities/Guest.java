@@ -4,6 +4,7 @@ import com.hotel.core.Entity;
 
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.function.Function;
 
 /**
  * Entity of Guest Object
@@ -24,7 +25,6 @@ public class Guest extends Entity<Guest> {
     private String creditCard;
 
     // Dynamic Relationship
-    private Reservation reservation = null;
     private Room room = null;
 
     // Enumerations
@@ -65,6 +65,7 @@ public class Guest extends Entity<Guest> {
      * @param contact new value of contact
      */
     public void setContact(String contact) {
+        setDirty("contact");
         this.contact = contact;
     }
 
@@ -84,6 +85,7 @@ public class Guest extends Entity<Guest> {
      * @param nationality new value of nationality
      */
     public void setNationality(String nationality) {
+        setDirty("nationality");
         this.nationality = nationality;
     }
 
@@ -102,6 +104,7 @@ public class Guest extends Entity<Guest> {
      * @param gender new value of gender
      */
     public void setGender(String gender) {
+        setDirty("gender");
         this.gender = gender;
     }
 
@@ -121,6 +124,7 @@ public class Guest extends Entity<Guest> {
      * @param country new value of country
      */
     public void setCountry(String country) {
+        setDirty("country");
         this.country = country;
     }
 
@@ -139,6 +143,7 @@ public class Guest extends Entity<Guest> {
      * @param address new value of address
      */
     public void setAddress(String address) {
+        setDirty("address");
         this.address = address;
     }
 
@@ -157,6 +162,7 @@ public class Guest extends Entity<Guest> {
      * @param name new value of name
      */
     public void setName(String name) {
+        setDirty("name");
         this.name = name;
     }
 
@@ -165,6 +171,7 @@ public class Guest extends Entity<Guest> {
     }
 
     public void setCreditCard(String creditCard) {
+        setDirty("creditCard");
         this.creditCard = creditCard;
     }
 
@@ -175,29 +182,31 @@ public class Guest extends Entity<Guest> {
     public Room getRoom() {
         Reservation rsv = getReservation();
         // Return only when user checked in
-        if (rsv.getReservationStatus() == Reservation.ReservationStatus.CHECKED_IN)
+        if (rsv != null && rsv.getReservationStatus() == Reservation.ReservationStatus.CHECKED_IN)
             return rsv.getRoom();
 
         return null;
     }
 
     /**
-     * Get Reservation object if exists
-     * @return Reservation Object
+     * Get every Reservation of the Guest, including past stays
+     * @return Reservation Array in order of creation, empty if none
      */
-    public Reservation getReservation() {
-        if (reservation == null)
-            setReservation(new Reservation().find("guestId", getId()));
-
-        return reservation;
+    public Reservation[] getReservations() {
+        return new Reservation().findChildren("guestId", getId());
     }
 
     /**
-     * Set Reservation object linked to Guest
-     * @param reservation Reservation Object
+     * Get the current Reservation of the Guest, the checked in one if any, otherwise the latest
+     * @return Reservation Object, null if none
      */
-    public void setReservation(Reservation reservation) {
-        this.reservation = reservation;
+    public Reservation getReservation() {
+        Reservation rsvList[] = getReservations();
+        for (Reservation rsv : rsvList)
+            if (rsv.getReservationStatus() == Reservation.ReservationStatus.CHECKED_IN)
+                return rsv;
+
+        return rsvList.length == 0 ? null : rsvList[rsvList.length - 1];
     }
 
     /**
@@ -213,6 +222,7 @@ public class Guest extends Entity<Guest> {
      * @param id Guest id
      */
     public void setId(String id) {
+        setDirty("id");
         this.id = id;
     }
 
@@ -230,6 +240,7 @@ public class Guest extends Entity<Guest> {
      * @param idType set enum value
      */
     public void setIdType(IdType idType) {
+        setDirty("idType");
         this.idType = idType;
     }
 
@@ -249,6 +260,21 @@ public class Guest extends Entity<Guest> {
         return results;
     }
 
+    @Override
+    protected HashMap<String, Function<Guest, String>> getAccessors() {
+        return new HashMap<String, Function<Guest, String>>(){{
+            put("id", Guest::getId);
+            put("idType", g -> g.getIdType().toString());
+            put("name", Guest::getName);
+            put("address", Guest::getAddress);
+            put("country", Guest::getCountry);
+            put("gender", Guest::getGender);
+            put("nationality", Guest::getNationality);
+            put("contact", Guest::getContact);
+            put("creditCard", Guest::getCreditCard);
+        }};
+    }
+
     @Override
     public void loadHashMap(HashMap<String, String> results) {
         setId(results.get("id"));
@@ -294,12 +320,22 @@ public class Guest extends Entity<Guest> {
         return list;
     }
 
-    public HashMap<String, Enum[]> getEnumList() {
+    public HashMap<String, Enum<?>[]> getEnumList() {
         return new HashMap() {{
             put("idType", IdType.values());
         }};
     }
 
+    @Override
+    public String[] getKeyAttributes() {
+        return new String[] {"id"};
+    }
+
+    @Override
+    protected String[] getSearchableAttributes() {
+        return new String[] {"id", "name"};
+    }
+
     @Override
     public boolean validate() {
         errors.clear();
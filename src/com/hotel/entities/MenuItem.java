@@ -3,6 +3,7 @@ package com.hotel.entities;
 import com.hotel.core.Entity;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.function.Function;
 
 /**
  * Entity of MenuItem Object
@@ -29,6 +30,7 @@ public class MenuItem extends Entity<MenuItem> {
     }
 
     public void setName(String name) {
+        setDirty("name");
         this.name = name;
     }
 
@@ -37,6 +39,7 @@ public class MenuItem extends Entity<MenuItem> {
     }
 
     public void setDescription(String description) {
+        setDirty("description");
         this.description = description;
     }
 
@@ -45,6 +48,7 @@ public class MenuItem extends Entity<MenuItem> {
     }
 
     public void setPrepSteps(String prepSteps) {
+        setDirty("prepSteps");
         this.prepSteps = prepSteps;
     }
 
@@ -53,6 +57,7 @@ public class MenuItem extends Entity<MenuItem> {
     }
 
     public void setPrice(double price) {
+        setDirty("price");
         this.price = price;
     }
 
@@ -67,6 +72,16 @@ public class MenuItem extends Entity<MenuItem> {
         return results;
     }
 
+    @Override
+    protected HashMap<String, Function<MenuItem, String>> getAccessors() {
+        return new HashMap<String, Function<MenuItem, String>>(){{
+            put("name", MenuItem::getName);
+            put("description", MenuItem::getDescription);
+            put("prepSteps", MenuItem::getPrepSteps);
+            put("price", m -> Double.toString(m.getPrice()));
+        }};
+    }
+
     @Override
     public void loadHashMap(HashMap<String, String> results) {
         setName(results.get("name"));
@@ -111,7 +126,12 @@ public class MenuItem extends Entity<MenuItem> {
     }
 
     @Override
-    public HashMap<String, Enum[]> getEnumList() {
+    public HashMap<String, Enum<?>[]> getEnumList() {
         return null;
     }
+
+    @Override
+    public String[] getKeyAttributes() {
+        return new String[] {"name"};
+    }
 }
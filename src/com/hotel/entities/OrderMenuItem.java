@@ -4,6 +4,7 @@ import com.hotel.core.Entity;
 
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.function.Function;
 
 /**
  * Entity of OrderMenuItem Object
@@ -32,10 +33,12 @@ public class OrderMenuItem extends Entity<OrderMenuItem> {
     }
 
     public void setName(String name) {
+        setDirty("name");
         this.name = name;
     }
 
     public void setPrice(double price) {
+        setDirty("price");
         this.price = price;
     }
 
@@ -64,10 +67,22 @@ public class OrderMenuItem extends Entity<OrderMenuItem> {
     }
 
     public void setQty(int qty) {
+        setDirty("qty");
         this.qty = qty;
     }
 
+    /**
+     * Id of the RoomService. Read from the RoomService until the order has been saved
+     * @return id of the RoomService
+     */
+    public String getRoomServiceId() {
+        if (roomServiceId == null)
+            return getRoomService().getId();
+        return roomServiceId;
+    }
+
     private void setRoomServiceId(String roomServiceId) {
+        setDirty("rsId");
         this.roomServiceId = roomServiceId;
     }
 
@@ -76,11 +91,21 @@ public class OrderMenuItem extends Entity<OrderMenuItem> {
         LinkedHashMap<String, String> results = new LinkedHashMap<>();
         results.put("name", getName());
         results.put("price", Double.toString(getPrice()));
-        results.put("rsId", getRoomService().getId());
+        results.put("rsId", getRoomServiceId());
         results.put("qty", Integer.toString(getQty()));
         return results;
     }
 
+    @Override
+    protected HashMap<String, Function<OrderMenuItem, String>> getAccessors() {
+        return new HashMap<String, Function<OrderMenuItem, String>>(){{
+            put("name", OrderMenuItem::getName);
+            put("price", omi -> Double.toString(omi.getPrice()));
+            put("rsId", OrderMenuItem::getRoomServiceId);
+            put("qty", omi -> Integer.toString(omi.getQty()));
+        }};
+    }
+
     @Override
     public void loadHashMap(HashMap<String, String> results) {
         setName(results.get("name"));
@@ -115,7 +140,17 @@ public class OrderMenuItem extends Entity<OrderMenuItem> {
     }
 
     @Override
-    public HashMap<String, Enum[]> getEnumList() {
+    public HashMap<String, Enum<?>[]> getEnumList() {
         return null;
     }
+
+    @Override
+    public String[] getKeyAttributes() {
+        return new String[] {"rsId", "name"};
+    }
+
+    @Override
+    protected String[] getIndexedAttributes() {
+        return new String[] {"rsId"};
+    }
 }
@@ -23,10 +23,8 @@ public class Payment {
     }
 
     public double getRoomServiceTotal() {
-        RoomService rsList[] = new RoomService().findAll("reservationId", getReservation().getReservationCode());
-
         double total = 0.0;
-        for (RoomService rs : rsList)
+        for (RoomService rs : getReservation().getRoomServices())
             total += rs.getTotal();
 
         return total;
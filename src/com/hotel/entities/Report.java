@@ -6,7 +6,7 @@ import java.util.LinkedHashMap;
 
 /**
  * Entity of Report Object
- * Generates Reports
+ * Generates Reports. Rooms are reported at their status tonight, see Availability.getStatus()
  * @author  Tan Jun Xiang
  * @version 1.0
  */
@@ -17,36 +17,40 @@ public class Report {
         this.roomList = new Room().findAll();
     }
 
-    public HashMap genRoomTypeOccupancy(Room.RoomStatus roomStatus) {
+    public HashMap<String, HashMap<String, Room[]>> genRoomTypeOccupancy(Room.RoomStatus roomStatus) {
         HashMap<String, HashMap<String, Room[]>> results = new LinkedHashMap<>();
 
         // Loop through all Room Types
         for (Room.RoomType rt : Room.RoomType.values()) {
             HashMap<String, Room[]> rooms = new HashMap<>();
-            ArrayList matched = new ArrayList();
-            ArrayList unmatched = new ArrayList();
+            ArrayList<Room> matched = new ArrayList<>();
+            ArrayList<Room> unmatched = new ArrayList<>();
             // Loop through all Rooms
             for (Room r : new Room().findAll("roomType", rt.toString())) {
-                if (r.getStatus() == roomStatus)
+                if (Availability.getStatus(r) == roomStatus)
                     matched.add(r);
                 else
                     unmatched.add(r);
             }
 
-            rooms.put("matched", (Room[]) matched.toArray(new Room[matched.size()]));
-            rooms.put("unmatched", (Room[]) unmatched.toArray(new Room[unmatched.size()]));
+            rooms.put("matched", matched.toArray(new Room[matched.size()]));
+            rooms.put("unmatched", unmatched.toArray(new Room[unmatched.size()]));
             results.put(rt.toString(), rooms);
         }
         return results;
     }
 
-    public HashMap genRoomStatus() {
+    public HashMap<String, Room[]> genRoomStatus() {
         HashMap<String, Room[]> results = new LinkedHashMap<>();
 
-        // Loop through all Room Types
+        // Group all Rooms by their status tonight
+        HashMap<Room.RoomStatus, ArrayList<Room>> statuses = new HashMap<>();
+        for (Room r : roomList)
+            statuses.computeIfAbsent(Availability.getStatus(r), k -> new ArrayList<>()).add(r);
+
         for (Room.RoomStatus status : Room.RoomStatus.values()) {
-            Room rooms[] = new Room().findAll("status", status.toString());
-            results.put(status.toString(), rooms);
+            ArrayList<Room> rooms = statuses.getOrDefault(status, new ArrayList<>());
+            results.put(status.toString(), rooms.toArray(new Room[rooms.size()]));
         }
         return results;
     }
@@ -3,10 +3,12 @@ package com.hotel.entities;
 import com.hotel.Config;
 import com.hotel.core.DateManager;
 import com.hotel.core.Entity;
+import com.hotel.core.Transaction;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Entity of Reservation Object
@@ -16,6 +18,8 @@ import java.util.*;
 public class Reservation extends Entity<Reservation> {
 
     public static String dateFormat = "yyyy-MM-dd HHmm";
+    // Codes given to new Reservations until they are saved
+    private static final Set<String> issued = new HashSet<>();
 
     public enum ReservationStatus {
         CONFIRMED, WAITLIST, CHECKED_IN, CHECKED_OUT, EXPIRED
@@ -33,7 +37,6 @@ public class Reservation extends Entity<Reservation> {
     private Guest guest = null;
     private Room room = null;
     private boolean walkIn = false;
-    private RoomService roomService;
 
     public Reservation() {
         super(Reservation.class);
@@ -52,11 +55,29 @@ public class Reservation extends Entity<Reservation> {
     }
 
     /**
-     * Creates a unique reservation code
+     * Creates a unique reservation code. Codes of the same guest within a minute are numbered from 2
      */
     private void generateReservationCode() {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd-Hm");
-        reservationCode = String.format("%s-%s", sdf.format(new Date()), getGuest().getId());
+        String prefix = String.format("%s-%s", sdf.format(new Date()), getGuest().getId());
+        String code = prefix;
+
+        synchronized (issued) {
+            for (int i = 2; issued.contains(code) || new Reservation().find("reservationCode", code) != null; i++)
+                code = String.format("%s-%d", prefix, i);
+            issued.add(code);
+        }
+
+        reservationCode = code;
+    }
+
+    /**
+     * Give back the code of a new Reservation once it is saved or failed to save
+     */
+    private void releaseReservationCode() {
+        synchronized (issued) {
+            issued.remove(reservationCode);
+        }
     }
 
     public ReservationStatus getReservationStatus() {
@@ -65,6 +86,7 @@ public class Reservation extends Entity<Reservation> {
 
 
     public void setReservationStatus(ReservationStatus reservationStatus) {
+        setDirty("reservationStatus");
         this.reservationStatus = reservationStatus;
     }
 
@@ -84,6 +106,7 @@ public class Reservation extends Entity<Reservation> {
      * @param reservationCode
      */
     public void setReservationCode(String reservationCode) {
+        setDirty("reservationCode");
         this.reservationCode = reservationCode;
     }
 
@@ -115,6 +138,7 @@ public class Reservation extends Entity<Reservation> {
      * @param checkInDate new value of checkInDate
      */
     public void setCheckInDate(Date checkInDate) {
+        setDirty("checkInDate");
         this.checkInDate = checkInDate;
     }
 
@@ -134,6 +158,7 @@ public class Reservation extends Entity<Reservation> {
      * @param checkOutDate new value of checkOutDate
      */
     public void setCheckOutDate(Date checkOutDate) {
+        setDirty("checkOutDate");
         this.checkOutDate = checkOutDate;
     }
 
@@ -153,6 +178,7 @@ public class Reservation extends Entity<Reservation> {
      * @param numberOfAdults new value of numberOfAdults
      */
     public void setNumberOfAdults(int numberOfAdults) {
+        setDirty("numberOfAdult");
         this.numberOfAdults = numberOfAdults;
     }
 
@@ -171,6 +197,7 @@ public class Reservation extends Entity<Reservation> {
      * @param numberOfChildren new value of numberOfChildren
      */
     public void setNumberOfChildren(int numberOfChildren) {
+        setDirty("numberOfChildren");
         this.numberOfChildren = numberOfChildren;
     }
 
@@ -192,6 +219,8 @@ public class Reservation extends Entity<Reservation> {
 
     public void setGuest(Guest guest) {
         this.guest = guest;
+        if (guest != null)
+            setGuestId(guest.getId());
     }
 
     public Room getRoom() {
@@ -201,28 +230,48 @@ public class Reservation extends Entity<Reservation> {
         return room;
     }
 
-    public RoomService getRoomService() {
-        if (roomService == null)
-            roomService = new RoomService().find("reservationId", getReservationCode());
-        return roomService;
+    /**
+     * Get every Room Service order of the stay. Orders are added during the stay, so they are never cached
+     * @return RoomService Array in order of creation, empty if none
+     */
+    public RoomService[] getRoomServices() {
+        return new RoomService().findChildren("reservationId", getReservationCode());
     }
 
     public void setRoom(Room room) {
         this.room = room;
+        if (room != null)
+            setRoomId(room.getRoomId());
+    }
+
+    public String getGuestId() {
+        return guestId;
     }
 
     private void setGuestId(String guestId) {
+        setDirty("guestId");
+        // A Guest found for another id is found again
+        if (guest != null && !guest.getId().equals(guestId))
+            guest = null;
         this.guestId = guestId;
     }
 
+    public String getRoomId() {
+        return roomId;
+    }
+
     private void setRoomId(String roomId) {
+        setDirty("roomId");
+        // A Room found for another id is found again
+        if (room != null && !room.getRoomId().equals(roomId))
+            room = null;
         this.roomId = roomId;
     }
 
     @Override
     public HashMap<String, String> toHashMap() {
         LinkedHashMap<String, String> results = new LinkedHashMap<>();
-        SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
+        SimpleDateFormat sdf = DateManager.getFormat(dateFormat);
 
         results.put("reservationCode", getReservationCode().toString());
         results.put("reservationStatus", getReservationStatus().toString());
@@ -230,16 +279,30 @@ public class Reservation extends Entity<Reservation> {
         results.put("numberOfAdult", Integer.toString(getNumberOfAdults()));
         results.put("checkInDate", sdf.format(getCheckInDate()));
         results.put("checkOutDate", sdf.format(getCheckOutDate()));
-        results.put("guestId", getGuest().getId());
-        results.put("roomId", getRoom().getRoomId());
+        results.put("guestId", getGuestId());
+        results.put("roomId", getRoomId());
 
         return results;
     }
 
+    @Override
+    protected HashMap<String, Function<Reservation, String>> getAccessors() {
+        return new HashMap<String, Function<Reservation, String>>(){{
+            put("reservationCode", Reservation::getReservationCode);
+            put("reservationStatus", r -> r.getReservationStatus().toString());
+            put("numberOfChildren", r -> Integer.toString(r.getNumberOfChildren()));
+            put("numberOfAdult", r -> Integer.toString(r.getNumberOfAdults()));
+            put("checkInDate", r -> DateManager.getFormat(dateFormat).format(r.getCheckInDate()));
+            put("checkOutDate", r -> DateManager.getFormat(dateFormat).format(r.getCheckOutDate()));
+            put("guestId", Reservation::getGuestId);
+            put("roomId", Reservation::getRoomId);
+        }};
+    }
+
 
     @Override
     public void loadHashMap(HashMap<String, String> results) {
-        SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
+        SimpleDateFormat sdf = DateManager.getFormat(dateFormat);
 
         try {
             setNumberOfChildren(Integer.parseInt(results.get("numberOfChildren")));
@@ -277,8 +340,8 @@ public class Reservation extends Entity<Reservation> {
         if (DateManager.getTotalDays(getCheckInDate(), getCheckOutDate()) < 1)
             errors.add("Check out Date cannot be before Check in date or the day itself");
 
-        if (getRoom().getStatus() != Room.RoomStatus.VACANT && isNewRecord())
-            errors.add("Invalid Room selected. Room Status: " + getRoom().getAttributeLabel(getRoom().getStatus().toString()));
+        if (isNewRecord() && !Availability.isAvailable(getRoom(), getCheckInDate(), getCheckOutDate()))
+            errors.add("Invalid Room selected. Room is not available for the selected dates.");
 
         return errors.size() == 0;
     }
@@ -314,49 +377,104 @@ public class Reservation extends Entity<Reservation> {
     }
 
     @Override
-    public HashMap<String, Enum[]> getEnumList() {
+    public HashMap<String, Enum<?>[]> getEnumList() {
         return new HashMap() {{
             put("reservationStatus", ReservationStatus.values());
         }};
     }
 
     @Override
-    public boolean save() {
-        boolean newRecord = isNewRecord();
-        boolean success = super.save();
-
-        // Update Room to be Occupied
-        if (success && newRecord) {
-            Room r = getRoom();
-            r.setStatus(Room.RoomStatus.RESERVED);
-            if(!r.save()) {
-                for (String error : getErrors())
-                    System.out.println(error);
-            }
+    public String[] getKeyAttributes() {
+        return new String[] {"reservationCode"};
+    }
+
+    @Override
+    protected String[] getIndexedAttributes() {
+        return new String[] {"roomId", "guestId", "reservationStatus"};
+    }
+
+    @Override
+    protected String[] getArchivedValues() {
+        return new String[] {"reservationStatus", ReservationStatus.CHECKED_OUT.toString(), ReservationStatus.EXPIRED.toString()};
+    }
+
+    @Override
+    protected void resolve() {
+        getGuest();
+        getRoom();
+    }
+
+    @Override
+    protected void resolve(Collection<Reservation> list) {
+        ArrayList<String> guestIds = new ArrayList<>();
+        ArrayList<String> roomIds = new ArrayList<>();
+        for (Reservation rsv : list) {
+            if (rsv.guest == null)
+                guestIds.add(rsv.guestId);
+            if (rsv.room == null)
+                roomIds.add(rsv.roomId);
         }
 
-        return success;
+        // One lookup per Guest and Room, however many Reservations share them
+        HashMap<String, Guest> guests = new Guest().findEach("id", guestIds);
+        HashMap<String, Room> rooms = new Room().findEach("roomId", roomIds);
+        for (Reservation rsv : list) {
+            if (rsv.guest == null)
+                rsv.guest = guests.get(rsv.guestId);
+            if (rsv.room == null)
+                rsv.room = rooms.get(rsv.roomId);
+        }
     }
 
-    public void checkExpiredReservations() {
-        // Check Expired Reservations
-        Reservation rsvList[] = super.findAll("reservationStatus", ReservationStatus.CONFIRMED.toString());
-        for (Reservation rsv : rsvList) {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(rsv.getCheckInDate());
-            calendar.add(Calendar.HOUR_OF_DAY, Config.expireHours);
+    @Override
+    public boolean save() {
+        boolean newRecord = isNewRecord();
 
-            // Reservation has expired
-            if (!calendar.getTime().after(new Date())) {
-                rsv.setReservationStatus(ReservationStatus.EXPIRED);
-                Room r = rsv.getRoom();
-                r.setStatus(Room.RoomStatus.VACANT);
+        // The Reservation and its Room are committed together
+        return Transaction.run(() -> {
+            if (newRecord) {
+                Transaction.afterCommit(this::releaseReservationCode);
+                Transaction.afterRollback(this::releaseReservationCode);
+            }
+
+            if (!super.save())
+                return false;
 
-                // Save the records
-                rsv.save();
-                r.save();
+            // The nights are held until the commit, so no other Reservation is given them meanwhile
+            if (newRecord && !Availability.reserve(this)) {
+                errors.add("Invalid Room selected. Room is not available for the selected dates.");
+                return false;
             }
-        }
+
+            Transaction.afterCommit(() -> {
+                Availability.update(this);
+                ExpiryScheduler.schedule(this);
+            });
+
+            // Update Room to be Reserved if the guest arrives today
+            if (newRecord && DateManager.getEpochDay(getCheckInDate()) <= DateManager.getEpochDay(new Date())) {
+                Room r = getRoom().checkout();
+                r.setStatus(Room.RoomStatus.RESERVED);
+                if (!r.save()) {
+                    for (String error : r.getErrors())
+                        System.out.println(error);
+                    return false;
+                }
+            }
+
+            return true;
+        });
+    }
+
+    /**
+     * Time a CONFIRMED Reservation expires if the guest has not checked in
+     * @return Date of expiry
+     */
+    public Date getExpiryDate() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(getCheckInDate());
+        calendar.add(Calendar.HOUR_OF_DAY, Config.expireHours);
+        return calendar.getTime();
     }
 
     public boolean checkIn() {
@@ -371,10 +489,10 @@ public class Reservation extends Entity<Reservation> {
         // Do Check in
         if (errors.size() == 0) {
             setReservationStatus(ReservationStatus.CHECKED_IN);
-            Room room = getRoom();
+            Room room = getRoom().checkout();
             room.setStatus(Room.RoomStatus.OCCUPIED);
 
-            if (!(save() && room.save()))
+            if (!Transaction.run(() -> save() && room.save()))
                 errors.add("Failed to update Reservation or Room.");
 
             for (String error : room.getErrors())
@@ -389,12 +507,10 @@ public class Reservation extends Entity<Reservation> {
     public boolean checkOut() {
         if (getReservationStatus() == ReservationStatus.CHECKED_IN) {
             setReservationStatus(ReservationStatus.CHECKED_OUT);
-            Room r = getRoom();
+            Room r = getRoom().checkout();
 
             r.setStatus(Room.RoomStatus.VACANT);
-            save();
-            r.save();
-            return true;
+            return Transaction.run(() -> save() && r.save());
         }
 
         return false;
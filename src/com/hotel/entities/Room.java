@@ -4,6 +4,7 @@ import com.hotel.core.Entity;
 
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.function.Function;
 
 /**
  * Entity of Room Object
@@ -56,44 +57,51 @@ public class Room extends Entity<Room> {
 
     public RoomType getRoomType() {return roomType;}
     public void setRoomType(RoomType roomType) {
+        setDirty("roomType");
         this.roomType = roomType;
     }
 
     public double getRoomRate() {return roomRate;}
     public void setRoomRate(double roomRate) {
+        setDirty("roomRate");
         this.roomRate = roomRate;
     }
 
     public double getRoomWeekendRate() {return roomWeekendRate;}
     public void setRoomWeekendRate(double roomWeekendRate) {
+        setDirty("roomWeekendRate");
         this.roomWeekendRate = roomWeekendRate;
     }
 
 
     public int getRoomNumber() {return roomNumber;}
     public void setRoomNumber(int roomNumber) {
+        setDirty("roomNumber");
+        setDirty("roomId");
         this.roomNumber = roomNumber;
     }
 
     public BedType getBedType() {return bedType;}
-    public void setBedType(BedType bedType) {this.bedType = bedType;}
+    public void setBedType(BedType bedType) {setDirty("bedType"); this.bedType = bedType;}
 
     public boolean isWifiEnabled() {return wifiEnabled;}
-    public void setWifiEnabled(boolean wifiEnabled) {this.wifiEnabled = wifiEnabled;}
+    public void setWifiEnabled(boolean wifiEnabled) {setDirty("wifiEnabled"); this.wifiEnabled = wifiEnabled;}
 
     public FacingType getFacing() {return facing;}
-    public void setFacing(FacingType facing) {this.facing = facing;}
+    public void setFacing(FacingType facing) {setDirty("facing"); this.facing = facing;}
 
     public boolean isSmokingAllowed() {return smokingAllowed;}
-    public void setSmokingAllowed(boolean smokingAllowed) {this.smokingAllowed = smokingAllowed;}
+    public void setSmokingAllowed(boolean smokingAllowed) {setDirty("smokingAllowed"); this.smokingAllowed = smokingAllowed;}
 
     public RoomStatus getStatus() {return status;}
-    public void setStatus(RoomStatus status) {this.status = status;}
+    public void setStatus(RoomStatus status) {setDirty("status"); this.status = status;}
 
     public int getRoomFloor() {
         return roomFloor;
     }
     public void setRoomFloor(int roomFloor) {
+        setDirty("roomFloor");
+        setDirty("roomId");
         this.roomFloor = roomFloor;
     }
 
@@ -130,6 +138,23 @@ public class Room extends Entity<Room> {
         return result;
     }
 
+    @Override
+    protected HashMap<String, Function<Room, String>> getAccessors() {
+        return new HashMap<String, Function<Room, String>>(){{
+            put("roomId", Room::getRoomId);
+            put("roomType", r -> r.getRoomType().toString());
+            put("roomRate", r -> Double.toString(r.getRoomRate()));
+            put("roomWeekendRate", r -> Double.toString(r.getRoomWeekendRate()));
+            put("roomFloor", r -> Integer.toString(r.getRoomFloor()));
+            put("roomNumber", r -> Integer.toString(r.getRoomNumber()));
+            put("wifiEnabled", r -> Boolean.toString(r.isWifiEnabled()));
+            put("smokingAllowed", r -> Boolean.toString(r.isSmokingAllowed()));
+            put("bedType", r -> r.getBedType().toString());
+            put("facing", r -> r.getFacing().toString());
+            put("status", r -> r.getStatus().toString());
+        }};
+    }
+
     @Override
     public void loadHashMap(HashMap<String, String> result) {
         setRoomType(RoomType.valueOf(result.get("roomType")));
@@ -211,7 +236,7 @@ public class Room extends Entity<Room> {
     }
 
     @Override
-    public HashMap<String, Enum[]> getEnumList() {
+    public HashMap<String, Enum<?>[]> getEnumList() {
         return new HashMap() {{
             put("status", RoomStatus.values());
             put("roomType", RoomType.values());
@@ -219,4 +244,19 @@ public class Room extends Entity<Room> {
             put("facing", FacingType.values());
         }};
     }
+
+    @Override
+    public String[] getKeyAttributes() {
+        return new String[] {"roomId"};
+    }
+
+    @Override
+    protected String[] getIndexedAttributes() {
+        return new String[] {"status", "roomType"};
+    }
+
+    @Override
+    protected String[] getBitmapAttributes() {
+        return new String[] {"roomType", "bedType", "facing", "status", "wifiEnabled", "smokingAllowed", "roomFloor"};
+    }
 }
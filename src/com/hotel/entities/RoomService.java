@@ -1,13 +1,13 @@
 package com.hotel.entities;
 
+import com.hotel.core.DateManager;
 import com.hotel.core.Entity;
+import com.hotel.core.Transaction;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * Entity of RoomService Object
@@ -20,7 +20,10 @@ public class RoomService extends Entity<RoomService> {
     }
 
     private static String dateFormat = "yyyy-MM-dd-H-m";
-    
+    // Ids given to new orders until they are saved
+    private static final Set<String> issued = new HashSet<>();
+
+    private String id = null;
     private String remarks;
     private Date created;
     private OrderStatus status;
@@ -41,8 +44,30 @@ public class RoomService extends Entity<RoomService> {
         menuItems = new ArrayList<>();
     }
 
+    /**
+     * Creates a unique order id. Orders of the same room within a minute are numbered from 2
+     */
     public void generateOrderId() {
+        SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
+        String prefix = String.format("%s-%s", sdf.format(getCreated()), getReservation().getRoom().getRoomId());
+        String code = prefix;
 
+        synchronized (issued) {
+            for (int i = 2; issued.contains(code) || new RoomService().find("id", code) != null; i++)
+                code = String.format("%s-%d", prefix, i);
+            issued.add(code);
+        }
+
+        id = code;
+    }
+
+    /**
+     * Give back the id of a new order once it is saved or failed to save
+     */
+    private void releaseOrderId() {
+        synchronized (issued) {
+            issued.remove(id);
+        }
     }
 
     public String getRemarks() {
@@ -50,6 +75,7 @@ public class RoomService extends Entity<RoomService> {
     }
 
     public void setRemarks(String remarks) {
+        setDirty("remarks");
         this.remarks = remarks;
     }
 
@@ -60,13 +86,14 @@ public class RoomService extends Entity<RoomService> {
     }
 
     private void setCreated(Date created) {
+        setDirty("created");
         this.created = created;
     }
 
 
     public OrderMenuItem[] getMenuItems() {
         if (menuItems.size() == 0) {
-            OrderMenuItem omiArr[] = new OrderMenuItem().findAll("rsId", getId());
+            OrderMenuItem omiArr[] = new OrderMenuItem().findChildren("rsId", getId());
             for (OrderMenuItem omi : omiArr)
                 menuItems.add(omi);
 
@@ -93,15 +120,28 @@ public class RoomService extends Entity<RoomService> {
 
     public void setReservation(Reservation reservation) {
         this.reservation = reservation;
+        if (reservation != null)
+            setReservationId(reservation.getReservationCode());
+    }
+
+    public String getReservationId() {
+        return reservationId;
     }
 
     public void setReservationId(String reservationId) {
+        setDirty("reservationId");
         this.reservationId = reservationId;
     }
 
     public String getId() {
-        SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-        return String.format("%s-%s", sdf.format(getCreated()), getReservation().getRoom().getRoomId());
+        if (id == null)
+            generateOrderId();
+        return id;
+    }
+
+    private void setId(String id) {
+        setDirty("id");
+        this.id = id;
     }
 
     public OrderStatus getStatus() {
@@ -109,6 +149,7 @@ public class RoomService extends Entity<RoomService> {
     }
 
     public void setStatus(OrderStatus status) {
+        setDirty("status");
         this.status = status;
     }
 
@@ -121,22 +162,34 @@ public class RoomService extends Entity<RoomService> {
 
     @Override
     public HashMap<String, String> toHashMap() {
-        SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
+        SimpleDateFormat sdf = DateManager.getFormat(dateFormat);
         LinkedHashMap<String, String> results = new LinkedHashMap<>();
 
         results.put("id", getId());
         results.put("remarks", getRemarks());
         results.put("status", getStatus().toString());
         results.put("created", sdf.format(getCreated()));
-        results.put("reservationId", getReservation().getReservationCode());
+        results.put("reservationId", getReservationId());
         return results;
     }
 
+    @Override
+    protected HashMap<String, Function<RoomService, String>> getAccessors() {
+        return new HashMap<String, Function<RoomService, String>>(){{
+            put("id", RoomService::getId);
+            put("remarks", RoomService::getRemarks);
+            put("status", rs -> rs.getStatus().toString());
+            put("created", rs -> DateManager.getFormat(dateFormat).format(rs.getCreated()));
+            put("reservationId", RoomService::getReservationId);
+        }};
+    }
+
     @Override
     public void loadHashMap(HashMap<String, String> guestData) {
         try {
-            SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
+            SimpleDateFormat sdf = DateManager.getFormat(dateFormat);
 
+            setId(guestData.get("id"));
             setRemarks(guestData.get("remarks"));
             setStatus(OrderStatus.valueOf(guestData.get("status")));
             setCreated(sdf.parse(guestData.get("created")));
@@ -158,18 +211,34 @@ public class RoomService extends Entity<RoomService> {
 
     @Override
     public boolean save() {
-        if (isNewRecord())
+        boolean newRecord = isNewRecord();
+        if (newRecord)
             setStatus(OrderStatus.CONFIRMED);
 
-        boolean success = super.save();
-        if (!success)
-            return false;
+        // The order and its Menu Items are committed together
+        boolean success = Transaction.run(() -> {
+            if (newRecord) {
+                Transaction.afterCommit(this::releaseOrderId);
+                Transaction.afterRollback(this::releaseOrderId);
+            }
 
-        // Save all Menu RoomService Items
-        for (OrderMenuItem mi : getMenuItems())
-            mi.save();
+            if (!super.save())
+                return false;
 
-        return true;
+            // Save all Menu RoomService Items
+            for (OrderMenuItem mi : getMenuItems())
+                if (!mi.save())
+                    return false;
+
+            return true;
+        });
+
+        // Errors of Menu Items, e.g. a conflict found when committing, are the errors of the order
+        if (!success)
+            for (OrderMenuItem mi : getMenuItems())
+                addErrors(mi);
+
+        return success;
     }
 
     @Override
@@ -194,9 +263,44 @@ public class RoomService extends Entity<RoomService> {
     }
 
     @Override
-    public HashMap<String, Enum[]> getEnumList() {
+    public HashMap<String, Enum<?>[]> getEnumList() {
         return new HashMap() {{
             put("status", OrderStatus.values());
         }};
     }
+
+    @Override
+    public String[] getKeyAttributes() {
+        return new String[] {"id"};
+    }
+
+    @Override
+    protected String[] getIndexedAttributes() {
+        return new String[] {"reservationId"};
+    }
+
+    @Override
+    protected void resolve() {
+        getReservation();
+    }
+
+    @Override
+    protected void resolve(Collection<RoomService> list) {
+        ArrayList<String> codes = new ArrayList<>();
+        for (RoomService rs : list)
+            if (rs.reservation == null)
+                codes.add(rs.reservationId);
+
+        HashMap<String, Reservation> rsvList = new Reservation().findEach("reservationCode", codes);
+        ArrayList<Reservation> found = new ArrayList<>();
+        for (RoomService rs : list) {
+            if (rs.reservation == null)
+                rs.reservation = rsvList.get(rs.reservationId);
+            if (rs.reservation != null)
+                found.add(rs.reservation);
+        }
+
+        // Orders are listed with the Room and Guest of their Reservation
+        resolveAll(found);
+    }
 }
@@ -0,0 +1,85 @@
+package com.hotel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs a main method in a new JVM with a data directory as working directory.
+ * Entities are loaded from the working directory once per JVM, so every run that reads the files
+ * again, e.g. after a simulated crash, needs a JVM of its own
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class ChildProcess {
+    /**
+     * Copy the data files of the application into a directory
+     * @param dir directory the files are copied to
+     * @return dir
+     */
+    public static Path copyData(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("executable"), "*.txt")) {
+            for (Path file : files)
+                Files.copy(file, dir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return dir;
+    }
+
+    /**
+     * Run a main method in the default time zone
+     * @param dir working directory
+     * @param main class of the main method
+     * @param args arguments of the main method
+     * @return lines printed by the process
+     */
+    public static List<String> run(Path dir, Class<?> main, String... args) throws IOException, InterruptedException {
+        return runInZone(dir, null, main, args);
+    }
+
+    /**
+     * Run a main method and wait for it to exit. Fails the test if the process exits with an error
+     * @param dir working directory
+     * @param zone time zone of the process, null for the default
+     * @param main class of the main method
+     * @param args arguments of the main method
+     * @return lines printed by the process
+     */
+    public static List<String> runInZone(Path dir, String zone, Class<?> main, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (zone != null)
+            command.add("-Duser.timezone=" + zone);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(main.getName());
+        command.addAll(Arrays.asList(args));
+
+        Process process = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null)
+                lines.add(line);
+        }
+
+        assertEquals(String.join("\n", lines), 0, process.waitFor());
+        return lines;
+    }
+
+    /**
+     * Last line printed by a process
+     * @param lines lines printed
+     * @return last line, empty if nothing was printed
+     */
+    public static String last(List<String> lines) {
+        return lines.isEmpty() ? "" : lines.get(lines.size() - 1);
+    }
+}
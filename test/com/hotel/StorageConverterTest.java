@@ -0,0 +1,66 @@
+package com.hotel;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Converts the files to binary in one time zone and back to text in others.
+ * Dates have to read back as the same text
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class StorageConverterTest {
+    // Files with dates
+    private static final String[] FILES = {"reservation.txt", "roomservice.txt"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsDatesInAnotherZone() throws Exception {
+        roundTrip("Asia/Singapore", "UTC");
+    }
+
+    @Test
+    public void readsDatesAcrossDaylightSaving() throws Exception {
+        roundTrip("UTC", "America/New_York");
+    }
+
+    private void roundTrip(String from, String to) throws Exception {
+        Path dir = ChildProcess.copyData(folder.newFolder().toPath());
+        ChildProcess.runInZone(dir, from, StorageConverter.class, "binary");
+        for (String file : FILES)
+            Files.delete(dir.resolve(file));
+
+        List<String> lines = ChildProcess.runInZone(dir, to, StorageConverter.class, "text");
+        assertFalse(String.join("\n", lines), String.join("\n", lines).contains("Failed"));
+        for (String file : FILES)
+            assertEquals(file, readSorted(Paths.get("executable", file)), readSorted(dir.resolve(file)));
+    }
+
+    /**
+     * Lines of a file in order, as records may be written in another order
+     * @param file path of the file
+     * @return non-empty lines, sorted
+     */
+    private static List<String> readSorted(Path file) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(file))
+            if (!line.trim().isEmpty())
+                lines.add(line);
+
+        Collections.sort(lines);
+        return lines;
+    }
+}
@@ -0,0 +1,165 @@
+package com.hotel.core;
+
+import com.hotel.ChildProcess;
+import com.hotel.entities.MenuItem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads menuitem.txt back after the process stops at points a crash could stop it.
+ * Each step runs in a JVM of its own, see main()
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class JournalReplayTest {
+    private static final String DATA = "menuitem.txt";
+    private static final String JOURNAL = DATA + ".log";
+    // Record FileManager appends to the journal before it moves the new file in
+    private static final String MARK = "@checkpoint";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+    private String expected;
+
+    /**
+     * Items as they are after the changes of write, read from the original file
+     */
+    @Before
+    public void setUp() throws Exception {
+        dir = ChildProcess.copyData(folder.getRoot().toPath());
+        String[] before = ChildProcess.last(ChildProcess.run(dir, JournalReplayTest.class, "read")).split(" ");
+        expected = String.format("items %d zeta 0 zeta2 2.0 breakfast 1 again", Integer.parseInt(before[1]) + 1);
+    }
+
+    @Test
+    public void replaysJournalAfterCrash() throws Exception {
+        ChildProcess.run(dir, JournalReplayTest.class, "write", "crash");
+        assertTrue(Files.size(dir.resolve(JOURNAL)) > 0);
+
+        assertEquals(expected, read());
+    }
+
+    @Test
+    public void skipsJournalOfReplacedFile() throws Exception {
+        ChildProcess.run(dir, JournalReplayTest.class, "write");
+        byte[] journal = Files.readAllBytes(dir.resolve(JOURNAL));
+        assertEquals("checkpoint true", ChildProcess.last(ChildProcess.run(dir, JournalReplayTest.class, "checkpoint")));
+
+        // Stopped after the new file was moved in, before the journal was cleared
+        Files.write(dir.resolve(JOURNAL), journal);
+        appendMark(getMark(Files.readAllBytes(dir.resolve(DATA))));
+        assertEquals(expected, read());
+
+        ChildProcess.run(dir, JournalReplayTest.class, "update");
+        assertEquals(expected.replace("zeta2 2.0", "zeta2 7.0"), read());
+    }
+
+    @Test
+    public void replaysJournalOfFileNotReplaced() throws Exception {
+        byte[] data = Files.readAllBytes(dir.resolve(DATA));
+        ChildProcess.run(dir, JournalReplayTest.class, "write");
+        byte[] journal = Files.readAllBytes(dir.resolve(JOURNAL));
+
+        // Stopped after the mark was written, before the new file was moved in
+        Files.write(dir.resolve(DATA), data);
+        Files.write(dir.resolve(JOURNAL), journal);
+        appendMark("123:abc");
+        assertEquals(expected, read());
+    }
+
+    private String read() throws Exception {
+        return ChildProcess.last(ChildProcess.run(dir, JournalReplayTest.class, "read"));
+    }
+
+    private void appendMark(String mark) throws Exception {
+        String record = String.format("%s\t%s\n\n", MARK, mark);
+        Files.write(dir.resolve(JOURNAL), record.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static String getMark(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return data.length + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Steps run in a JVM of their own
+     * @param args write [crash], checkpoint, update or read
+     */
+    public static void main(String[] args) {
+        switch (args[0]) {
+            case "write":
+                MenuItem zeta = newItem("Zeta", 1);
+                check(zeta.save());
+                zeta = new MenuItem().find("name", "Zeta").checkout();
+                zeta.setPrice(2);
+                check(zeta.save());
+                zeta = new MenuItem().find("name", "Zeta").checkout();
+                zeta.setName("Zeta2");
+                check(zeta.save());
+                check(new MenuItem().find("name", "Breakfast Set").checkout().delete());
+                MenuItem breakfast = newItem("Breakfast Set", 9);
+                breakfast.setDescription("again");
+                check(breakfast.save());
+
+                // Nothing is flushed or checkpointed on the way out
+                if (args.length > 1)
+                    Runtime.getRuntime().halt(0);
+                break;
+            case "checkpoint":
+                Entity<MenuItem> item = new MenuItem();
+                Entity.awaitReady();
+                System.out.println("checkpoint " + item.getFileManager().checkpoint(item.getStore()));
+                break;
+            case "update":
+                MenuItem zeta2 = new MenuItem().find("name", "Zeta2").checkout();
+                zeta2.setPrice(7);
+                check(zeta2.save());
+                break;
+            default:
+                int items = 0, zetas = 0, breakfasts = 0;
+                double zeta2Price = 0;
+                String description = "";
+                for (MenuItem m : new MenuItem().findAll()) {
+                    items++;
+                    if (m.getName().equals("Zeta"))
+                        zetas++;
+                    if (m.getName().equals("Zeta2"))
+                        zeta2Price = m.getPrice();
+                    if (m.getName().equals("Breakfast Set")) {
+                        breakfasts++;
+                        description = m.getDescription();
+                    }
+                }
+                System.out.printf("items %d zeta %d zeta2 %s breakfast %d %s\n", items, zetas, zeta2Price, breakfasts, description);
+        }
+        System.exit(0);
+    }
+
+    private static MenuItem newItem(String name, double price) {
+        MenuItem m = new MenuItem();
+        m.setName(name);
+        m.setDescription("d");
+        m.setPrepSteps("p");
+        m.setPrice(price);
+        return m;
+    }
+
+    private static void check(boolean success) {
+        if (!success)
+            System.exit(1);
+    }
+}
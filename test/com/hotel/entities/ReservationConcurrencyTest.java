@@ -0,0 +1,111 @@
+package com.hotel.entities;
+
+import com.hotel.ChildProcess;
+import com.hotel.core.DateManager;
+import com.hotel.core.Entity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Saves Reservations of the same Room for overlapping nights at the same time.
+ * Only one of them may be saved, also as read back from the files by a new JVM, see main()
+ * @author  Tan Jun Xiang
+ * @version 1.0
+ */
+public class ReservationConcurrencyTest {
+    private static final String GUEST = "A0831180";
+    private static final String ROOM = "0207";
+    private static final int THREADS = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savesOneOfOverlappingReservations() throws Exception {
+        Path dir = ChildProcess.copyData(folder.getRoot().toPath());
+
+        assertEquals("saved 1 of " + THREADS, ChildProcess.last(ChildProcess.run(dir, ReservationConcurrencyTest.class, "book")));
+        assertEquals("stored 1", ChildProcess.last(ChildProcess.run(dir, ReservationConcurrencyTest.class, "count")));
+    }
+
+    /**
+     * Steps run in a JVM of their own
+     * @param args book or count
+     */
+    public static void main(String[] args) throws Exception {
+        Entity.awaitReady();
+        if (args[0].equals("book")) {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger saved = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                // Each Reservation starts a night later and still overlaps the first
+                int offset = i % 2;
+                Thread t = new Thread(() -> {
+                    Reservation rsv = newReservation(offset);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (rsv.save())
+                        saved.incrementAndGet();
+                });
+                t.start();
+                threads.add(t);
+            }
+
+            start.countDown();
+            for (Thread t : threads)
+                t.join();
+            System.out.printf("saved %d of %d\n", saved.get(), THREADS);
+        } else {
+            long first = DateManager.getEpochDay(getDate(3));
+            int stored = 0;
+            for (Reservation rsv : new Reservation().findAll("roomId", ROOM))
+                if (rsv.getReservationStatus() == Reservation.ReservationStatus.CONFIRMED
+                        && DateManager.getEpochDay(rsv.getCheckInDate()) >= first)
+                    stored++;
+            System.out.printf("stored %d\n", stored);
+        }
+        System.exit(0);
+    }
+
+    private static Reservation newReservation(int offset) {
+        Reservation rsv = new Reservation();
+        rsv.setGuest(new Guest().find("id", GUEST));
+        rsv.setRoom(new Room().find("roomId", ROOM));
+        rsv.setReservationStatus(Reservation.ReservationStatus.CONFIRMED);
+        rsv.setNumberOfAdults(1);
+        rsv.setNumberOfChildren(0);
+        rsv.setCheckInDate(getDate(3 + offset));
+        rsv.setCheckOutDate(getDate(5 + offset));
+        return rsv;
+    }
+
+    /**
+     * Noon of a day from today
+     * @param days number of days from today
+     * @return Date
+     */
+    private static Date getDate(int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DATE, days);
+        calendar.set(Calendar.HOUR_OF_DAY, 12);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+}